@@ -0,0 +1,117 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.Region;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracking the properties of a node, as done for every traced node and every
+ * details selection: the cached getters of {@link PropertyTracker} against the
+ * reflective lookup it used to do on each call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@SuppressWarnings("rawtypes")
+public class PropertyTrackerBenchmark {
+
+	@Param({ "Button", "TableView", "Region" })
+	public String nodeClass;
+
+	private Node node;
+	private PropertyTracker tracker;
+	private final InvalidationListener listener = o -> {};
+
+	@Setup
+	public void setup() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		try {
+			Platform.startup(started::countDown);
+		} catch (final IllegalStateException e) {
+			// Already started by a previous trial of this fork
+			started.countDown();
+		}
+		started.await();
+		node = switch (nodeClass) {
+			case "Button" -> new Button("Button");
+			case "TableView" -> new TableView<>();
+			default -> new Region();
+		};
+		tracker = new PropertyTracker() {
+			@Override
+			protected void updateDetail(final String string, final ObservableValue property) {
+			}
+		};
+	}
+
+	@Benchmark
+	public int cached() {
+		tracker.setTarget(node);
+		final int count = tracker.getProperties().size();
+		tracker.clear();
+		return count;
+	}
+
+	@Benchmark
+	public int reflective() throws Exception {
+		final Map<ObservableValue, String> properties = new HashMap<>();
+		for (final Method method : node.getClass().getMethods()) {
+			if (method.getName().endsWith("Property") && ObservableValue.class.isAssignableFrom(method.getReturnType())) {
+				try {
+					final String propertyName = method.getName().substring(0, method.getName().lastIndexOf("Property"));
+					method.setAccessible(true);
+					properties.put((ObservableValue) method.invoke(node), propertyName);
+				} catch (final Exception e) {
+					// Reported by the old implementation, not measured here
+				}
+			}
+		}
+		for (final ObservableValue ov : properties.keySet()) {
+			if (ov != null) {
+				ov.addListener(listener);
+			}
+		}
+		for (final ObservableValue ov : properties.keySet()) {
+			if (ov != null) {
+				ov.removeListener(listener);
+			}
+		}
+		return properties.size();
+	}
+
+}
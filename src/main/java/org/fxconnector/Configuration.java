@@ -18,6 +18,8 @@
 package org.fxconnector;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
 
 public final class Configuration implements Serializable {
 
@@ -38,6 +40,32 @@ public final class Configuration implements Serializable {
 
 	private boolean eventLogEnabled;
 
+	/**
+	 * Branch traced by the event log, the whole scene of every stage when the
+	 * stage is null
+	 */
+	private StageID eventLogStageID;
+
+	private int eventLogNodeID;
+
+	/**
+	 * Names of the event types traced and ignored, the most specific type
+	 * listed wins. Every type is traced when none is allowed.
+	 */
+	private String[] eventLogTypes = new String[0];
+
+	private String[] eventLogIgnoredTypes = new String[0];
+
+	/**
+	 * Events traced per second by each stage, unlimited when 0
+	 */
+	private int eventLogRate;
+
+	/**
+	 * Names of the properties whose changes are traced, all when empty
+	 */
+	private String[] eventLogProperties = new String[0];
+
 	private boolean autoRefreshStyles;
 
 	private boolean ignoreMouseTransparent;
@@ -83,6 +111,70 @@ public final class Configuration implements Serializable {
 		this.eventLogEnabled = eventLogEnabled;
 	}
 
+	public StageID getEventLogStageID() {
+		return eventLogStageID;
+	}
+
+	public int getEventLogNodeID() {
+		return eventLogNodeID;
+	}
+
+	public void setEventLogBranch(final StageID stageID, final int nodeID) {
+		this.eventLogStageID = stageID;
+		this.eventLogNodeID = nodeID;
+	}
+
+	public String[] getEventLogTypes() {
+		return eventLogTypes;
+	}
+
+	public void setEventLogTypes(final String... eventLogTypes) {
+		this.eventLogTypes = eventLogTypes;
+	}
+
+	public String[] getEventLogIgnoredTypes() {
+		return eventLogIgnoredTypes;
+	}
+
+	public void setEventLogIgnoredTypes(final String... eventLogIgnoredTypes) {
+		this.eventLogIgnoredTypes = eventLogIgnoredTypes;
+	}
+
+	public String[] getEventLogProperties() {
+		return eventLogProperties;
+	}
+
+	public void setEventLogProperties(final String... eventLogProperties) {
+		this.eventLogProperties = eventLogProperties;
+	}
+
+	public int getEventLogRate() {
+		return eventLogRate;
+	}
+
+	public void setEventLogRate(final int eventLogRate) {
+		this.eventLogRate = eventLogRate;
+	}
+
+	/**
+	 * True when both only differ in what the event log traces, which does
+	 * not need the scene graph to be sent again
+	 */
+	boolean isSameExceptEventLogScope(final Configuration other) {
+		return showBounds == other.showBounds && showBaseline == other.showBaseline && showRuler == other.showRuler && rulerSeparation == other.rulerSeparation
+				&& rulerColor.equals(other.rulerColor) && eventLogEnabled == other.eventLogEnabled && autoRefreshStyles == other.autoRefreshStyles
+				&& ignoreMouseTransparent == other.ignoreMouseTransparent && collapseControls == other.collapseControls
+				&& collapseContentControls == other.collapseContentControls && autoRefreshSceneGraph == other.autoRefreshSceneGraph
+				&& visibilityFilteringActive == other.visibilityFilteringActive && CSSPropertiesDetail == other.CSSPropertiesDetail
+				&& componentSelectOnClick == other.componentSelectOnClick && registerShortcuts == other.registerShortcuts;
+	}
+
+	boolean isSameEventLogScope(final Configuration other) {
+		return Objects.equals(eventLogStageID, other.eventLogStageID) && eventLogNodeID == other.eventLogNodeID && Arrays.equals(eventLogTypes, other.eventLogTypes)
+				&& Arrays.equals(eventLogIgnoredTypes, other.eventLogIgnoredTypes) && eventLogRate == other.eventLogRate
+				&& Arrays.equals(eventLogProperties, other.eventLogProperties);
+	}
+
 	public boolean isShowRuler() {
 		return showRuler;
 	}
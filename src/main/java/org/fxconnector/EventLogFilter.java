@@ -0,0 +1,149 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector;
+
+import javafx.event.EventType;
+import javafx.scene.Node;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides on the agent which events the event log traces (see
+ * {@link Configuration}), so the others are never turned into nodes and
+ * sent. It also tells which nodes and properties are worth listening to,
+ * the other nodes only get the structure listeners. Only used from the FX
+ * thread.
+ */
+final class EventLogFilter {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final NodeRegistry registry;
+	/**
+	 * Decision taken for each event type
+	 */
+	private final Map<EventType<?>, Boolean> types = new IdentityHashMap<>();
+	private Set<String> allowed = new HashSet<>();
+	private Set<String> ignored = new HashSet<>();
+	private Set<String> properties = new HashSet<>();
+	private boolean otherStage;
+	private int rootID;
+	private int rate;
+	private long windowStart;
+	private int traced;
+
+	EventLogFilter(final NodeRegistry registry) {
+		this.registry = registry;
+	}
+
+	void configure(final Configuration configuration, final StageID stageID) {
+		types.clear();
+		allowed = new HashSet<>(Arrays.asList(configuration.getEventLogTypes()));
+		ignored = new HashSet<>(Arrays.asList(configuration.getEventLogIgnoredTypes()));
+		properties = new HashSet<>(Arrays.asList(configuration.getEventLogProperties()));
+		otherStage = configuration.getEventLogStageID() != null && !configuration.getEventLogStageID().equals(stageID);
+		rootID = configuration.getEventLogStageID() != null ? configuration.getEventLogNodeID() : 0;
+		rate = configuration.getEventLogRate();
+	}
+
+	/**
+	 * The type is null for the events that are not FX events (property
+	 * changes...)
+	 */
+	boolean accept(final EventType<?> type, final Node node) {
+		return isInBranch(node) && accept(type);
+	}
+
+	/**
+	 * Same as {@link #accept(EventType, Node)} for a node already known to be
+	 * in the traced branch
+	 */
+	boolean accept(final EventType<?> type) {
+		if (otherStage || (type != null && !isTraced(type))) {
+			return false;
+		}
+		if (rate > 0) {
+			final long now = System.nanoTime();
+			if (now - windowStart >= SECOND) {
+				windowStart = now;
+				traced = 0;
+			}
+			return ++traced <= rate;
+		}
+		return true;
+	}
+
+	/**
+	 * True when the properties of the node are traced
+	 */
+	boolean isTracked(final Node node) {
+		return !otherStage && isInBranch(node);
+	}
+
+	/**
+	 * Names of the properties traced, all when empty
+	 */
+	Set<String> getProperties() {
+		return properties;
+	}
+
+	private boolean isTraced(final EventType<?> type) {
+		Boolean traced = types.get(type);
+		if (traced == null) {
+			traced = allowed.isEmpty();
+			for (EventType<?> current = type; current != null; current = current.getSuperType()) {
+				if (ignored.contains(current.getName())) {
+					traced = false;
+					break;
+				}
+				if (allowed.contains(current.getName())) {
+					traced = true;
+					break;
+				}
+			}
+			types.put(type, traced);
+		}
+		return traced;
+	}
+
+	/**
+	 * Root of the traced branch, null when the whole stage is traced
+	 */
+	Node getBranchRoot() {
+		return rootID == 0 ? null : registry.getNode(rootID);
+	}
+
+	boolean isInBranch(final Node node) {
+		if (rootID == 0) {
+			return true;
+		}
+		final Node root = getBranchRoot();
+		for (Node current = node; current != null; current = current.getParent()) {
+			if (current == root) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
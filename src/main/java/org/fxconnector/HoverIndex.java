@@ -0,0 +1,371 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.ReadOnlyProperty;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import org.fxconnector.helper.ChildrenGetter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Finds the node under the mouse without visiting the whole scene graph.
+ * The scene bounds of the nodes are kept in a uniform grid. A node that moves
+ * or changes its bounds only has its own entry and cells updated on the next
+ * lookup, the grid is rebuilt when the structure changes or too many nodes
+ * moved. The candidates of the cell are then checked like
+ * {@link SCUtils#getHoveredNode} would, topmost first.
+ * <p>
+ * Only used from the FX thread.
+ */
+final class HoverIndex {
+
+	private static final double CELL_SIZE = 64;
+	/**
+	 * Nodes covering more cells are checked on every lookup instead
+	 */
+	private static final int MAX_CELLS = 256;
+
+	private final Node target;
+	private final Configuration configuration;
+	private boolean dirty = true;
+
+	/**
+	 * Nodes in pre-order, so the topmost node of a hit is the one with the
+	 * highest index, and their scene bounds
+	 */
+	private Node[] nodes = new Node[256];
+	private double[] bounds = new double[256 * 4];
+	private int count;
+	private final Map<Object, Integer> indexes = new IdentityHashMap<>();
+
+	/**
+	 * Nodes whose scene bounds must be read again
+	 */
+	private final BitSet moved = new BitSet();
+	private final InvalidationListener boundsListener = o -> {
+		final Integer index = o instanceof ReadOnlyProperty ? indexes.get(((ReadOnlyProperty<?>) o).getBean()) : null;
+		if (index != null) {
+			moved.set(index);
+		} else {
+			dirty = true;
+		}
+	};
+	/**
+	 * The nodes added or removed by Scenic View (bounds, grid...) do not
+	 * change the index
+	 */
+	private final ListChangeListener<Node> structureListener = c -> {
+		while (!dirty && c.next()) {
+			dirty = c.getRemoved().stream().anyMatch(SCUtils::isNormalNode) || c.getAddedSubList().stream().anyMatch(SCUtils::isNormalNode);
+		}
+	};
+
+	private double cellSize = CELL_SIZE;
+	private int firstColumn;
+	private int firstRow;
+	private int columns;
+	private int rows;
+	/**
+	 * Nodes of each cell, created when the first node is added to it
+	 */
+	private int[][] cells = new int[0][];
+	private int[] cellCounts = new int[0];
+	private int[] large = new int[16];
+	private int largeCount;
+	private int[] candidates = new int[16];
+
+	HoverIndex(final Node target, final Configuration configuration) {
+		this.target = target;
+		this.configuration = configuration;
+	}
+
+	boolean isFor(final Node node) {
+		return target == node;
+	}
+
+	Node getHoveredNode(final double x, final double y) {
+		if (!dirty && !moved.isEmpty()) {
+			update();
+		}
+		if (dirty) {
+			rebuild();
+		}
+		int found = 0;
+		for (int i = 0; i < largeCount; i++) {
+			found = addCandidate(large[i], x, y, found);
+		}
+		final int column = (int) Math.floor(x / cellSize) - firstColumn;
+		final int row = (int) Math.floor(y / cellSize) - firstRow;
+		if (column >= 0 && column < columns && row >= 0 && row < rows) {
+			final int cell = row * columns + column;
+			for (int i = 0; i < cellCounts[cell]; i++) {
+				found = addCandidate(cells[cell][i], x, y, found);
+			}
+		}
+		Arrays.sort(candidates, 0, found);
+		for (int i = found - 1; i >= 0; i--) {
+			final Node node = nodes[candidates[i]];
+			if (node.contains(node.sceneToLocal(x, y)) && (!configuration.isIgnoreMouseTransparent() || !ConnectorUtils.isMouseTransparent(node))
+					&& ConnectorUtils.isNodeVisible(node)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the listeners from the nodes still in the scene
+	 */
+	void dispose() {
+		unlisten();
+	}
+
+	private void unlisten() {
+		for (int i = 0; i < count; i++) {
+			nodes[i].boundsInLocalProperty().removeListener(boundsListener);
+			nodes[i].localToSceneTransformProperty().removeListener(boundsListener);
+			ChildrenGetter.getChildren(nodes[i]).removeListener(structureListener);
+			nodes[i] = null;
+		}
+		count = 0;
+		indexes.clear();
+		moved.clear();
+	}
+
+	private int addCandidate(final int index, final double x, final double y, final int found) {
+		final int offset = index * 4;
+		if (x < bounds[offset] || x > bounds[offset + 2] || y < bounds[offset + 1] || y > bounds[offset + 3]) {
+			return found;
+		}
+		if (found == candidates.length) {
+			candidates = Arrays.copyOf(candidates, found * 2);
+		}
+		candidates[found] = index;
+		return found + 1;
+	}
+
+	/**
+	 * Moves the entries of the nodes that moved to their new cells. Falls
+	 * back to a rebuild when many nodes moved or one leaves the grid.
+	 */
+	private void update() {
+		if (moved.cardinality() > count / 4) {
+			dirty = true;
+			return;
+		}
+		final double[] previous = new double[4];
+		for (int i = moved.nextSetBit(0); i >= 0 && !dirty; i = moved.nextSetBit(i + 1)) {
+			final boolean wasLarge = isLarge(i);
+			System.arraycopy(bounds, i * 4, previous, 0, 4);
+			readBounds(i);
+			final int index = i;
+			if (isLarge(i)) {
+				if (!wasLarge) {
+					forEachCell(previous, 0, cell -> removeFromCell(cell, index));
+					addLarge(i);
+				}
+			} else if (!isInGrid(i)) {
+				dirty = true;
+			} else {
+				if (wasLarge) {
+					removeLarge(i);
+				} else {
+					forEachCell(previous, 0, cell -> removeFromCell(cell, index));
+				}
+				forEachCell(bounds, i * 4, cell -> addToCell(cell, index));
+			}
+		}
+		moved.clear();
+	}
+
+	private void rebuild() {
+		dirty = false;
+		// Removed nodes must not keep the index alive
+		unlisten();
+		collect(target);
+
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			if (isFinite(i)) {
+				minX = Math.min(minX, bounds[i * 4]);
+				minY = Math.min(minY, bounds[i * 4 + 1]);
+				maxX = Math.max(maxX, bounds[i * 4 + 2]);
+				maxY = Math.max(maxY, bounds[i * 4 + 3]);
+			}
+		}
+		largeCount = 0;
+		if (minX > maxX) {
+			columns = rows = 0;
+			cells = new int[0][];
+			cellCounts = new int[0];
+			for (int i = 0; i < count; i++) {
+				addLarge(i);
+			}
+			return;
+		}
+		// Far away nodes would make a huge grid, coarser cells keep it small
+		cellSize = CELL_SIZE;
+		while (((maxX - minX) / cellSize + 2) * ((maxY - minY) / cellSize + 2) > 1 << 20) {
+			cellSize *= 2;
+		}
+		firstColumn = (int) Math.floor(minX / cellSize);
+		firstRow = (int) Math.floor(minY / cellSize);
+		columns = (int) Math.floor(maxX / cellSize) - firstColumn + 1;
+		rows = (int) Math.floor(maxY / cellSize) - firstRow + 1;
+
+		cells = new int[columns * rows][];
+		cellCounts = new int[columns * rows];
+		for (int i = 0; i < count; i++) {
+			if (isLarge(i)) {
+				addLarge(i);
+			} else {
+				final int index = i;
+				forEachCell(bounds, i * 4, cell -> addToCell(cell, index));
+			}
+		}
+	}
+
+	private void collect(final Node node) {
+		if (!SCUtils.isNormalNode(node)) {
+			return;
+		}
+		node.boundsInLocalProperty().addListener(boundsListener);
+		node.localToSceneTransformProperty().addListener(boundsListener);
+		final ObservableList<Node> children = ChildrenGetter.getChildren(node);
+		children.addListener(structureListener);
+
+		if (count == nodes.length) {
+			nodes = Arrays.copyOf(nodes, count * 2);
+			bounds = Arrays.copyOf(bounds, count * 8);
+		}
+		nodes[count] = node;
+		indexes.put(node, count);
+		readBounds(count);
+		count++;
+		for (final Node child : children) {
+			collect(child);
+		}
+	}
+
+	private void readBounds(final int index) {
+		final Node node = nodes[index];
+		// Reading the properties validates them so they notify the next change
+		node.getLocalToSceneTransform();
+		final Bounds sceneBounds = node.localToScene(node.getBoundsInLocal());
+		final int offset = index * 4;
+		bounds[offset] = sceneBounds.getMinX();
+		bounds[offset + 1] = sceneBounds.getMinY();
+		bounds[offset + 2] = sceneBounds.getMaxX();
+		bounds[offset + 3] = sceneBounds.getMaxY();
+	}
+
+	private boolean isFinite(final int index) {
+		final int offset = index * 4;
+		for (int i = 0; i < 4; i++) {
+			if (!Double.isFinite(bounds[offset + i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isLarge(final int index) {
+		if (!isFinite(index)) {
+			return true;
+		}
+		final int offset = index * 4;
+		final long width = (long) Math.floor(bounds[offset + 2] / cellSize) - (long) Math.floor(bounds[offset] / cellSize) + 1;
+		final long height = (long) Math.floor(bounds[offset + 3] / cellSize) - (long) Math.floor(bounds[offset + 1] / cellSize) + 1;
+		return width * height > MAX_CELLS;
+	}
+
+	private boolean isInGrid(final int index) {
+		final int offset = index * 4;
+		return Math.floor(bounds[offset] / cellSize) >= firstColumn && Math.floor(bounds[offset + 1] / cellSize) >= firstRow
+				&& Math.floor(bounds[offset + 2] / cellSize) < firstColumn + columns && Math.floor(bounds[offset + 3] / cellSize) < firstRow + rows;
+	}
+
+	private void addLarge(final int index) {
+		if (largeCount == large.length) {
+			large = Arrays.copyOf(large, largeCount * 2);
+		}
+		large[largeCount++] = index;
+	}
+
+	private void removeLarge(final int index) {
+		for (int i = 0; i < largeCount; i++) {
+			if (large[i] == index) {
+				large[i] = large[--largeCount];
+				return;
+			}
+		}
+	}
+
+	private void addToCell(final int cell, final int index) {
+		if (cells[cell] == null) {
+			cells[cell] = new int[4];
+		} else if (cellCounts[cell] == cells[cell].length) {
+			cells[cell] = Arrays.copyOf(cells[cell], cellCounts[cell] * 2);
+		}
+		cells[cell][cellCounts[cell]++] = index;
+	}
+
+	private void removeFromCell(final int cell, final int index) {
+		final int[] cellNodes = cells[cell];
+		for (int i = 0; i < cellCounts[cell]; i++) {
+			if (cellNodes[i] == index) {
+				// The candidates are sorted on lookup, the order does not matter
+				cellNodes[i] = cellNodes[--cellCounts[cell]];
+				return;
+			}
+		}
+	}
+
+	private void forEachCell(final double[] bounds, final int offset, final CellConsumer consumer) {
+		final int fromColumn = clamp((int) Math.floor(bounds[offset] / cellSize) - firstColumn, columns);
+		final int toColumn = clamp((int) Math.floor(bounds[offset + 2] / cellSize) - firstColumn, columns);
+		final int fromRow = clamp((int) Math.floor(bounds[offset + 1] / cellSize) - firstRow, rows);
+		final int toRow = clamp((int) Math.floor(bounds[offset + 3] / cellSize) - firstRow, rows);
+		for (int row = fromRow; row <= toRow; row++) {
+			for (int column = fromColumn; column <= toColumn; column++) {
+				consumer.accept(row * columns + column);
+			}
+		}
+	}
+
+	private static int clamp(final int value, final int size) {
+		return Math.max(0, Math.min(size - 1, value));
+	}
+
+	@FunctionalInterface
+	private interface CellConsumer {
+		void accept(int cell);
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector;
+
+import javafx.scene.Node;
+import org.fxconnector.helper.ChildrenGetter;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns the IDs used to identify the nodes of a stage. IDs are never reused
+ * so they cannot collide, and nodes are only weakly referenced so they can
+ * still be garbage collected.
+ * <p>
+ * Each stage has its own registry, only accessed from the FX thread. The ID
+ * counter is shared by all of them so the IDs are unique across the stages of
+ * the application too.
+ */
+public final class NodeRegistry {
+
+	/**
+	 * Shared by the registries of all the stages
+	 */
+	private static final AtomicInteger lastID = new AtomicInteger();
+
+	private final Map<Node, Integer> ids = new WeakHashMap<>();
+	private final Map<Integer, NodeReference> nodes = new HashMap<>();
+	private final ReferenceQueue<Node> queue = new ReferenceQueue<>();
+	private final Map<Node, Map<Integer, Integer>> positions = new WeakHashMap<>();
+
+	public NodeRegistry() {
+	}
+
+	public void register(final Node node) {
+		getID(node);
+	}
+
+	public int getID(final Node node) {
+		Integer id = ids.get(node);
+		if (id == null) {
+			expunge();
+			id = lastID.incrementAndGet();
+			ids.put(node, id);
+			nodes.put(id, new NodeReference(node, id, queue));
+		}
+		return id;
+	}
+
+	public Node getNode(final int id) {
+		final NodeReference reference = nodes.get(id);
+		return reference != null ? reference.get() : null;
+	}
+
+	/**
+	 * Position of the child among the children of the parent, or -1. The
+	 * positions are cached until {@link #childrenChanged()}.
+	 */
+	public int indexOfChild(final Node parent, final int childID) {
+		Map<Integer, Integer> childPositions = positions.get(parent);
+		if (childPositions == null) {
+			final List<Node> children = ChildrenGetter.getChildren(parent);
+			childPositions = new HashMap<>();
+			for (int i = 0; i < children.size(); i++) {
+				childPositions.putIfAbsent(getID(children.get(i)), i);
+			}
+			positions.put(parent, childPositions);
+		}
+		final Integer position = childPositions.get(childID);
+		return position != null ? position : -1;
+	}
+
+	/**
+	 * Called when the children of any node change
+	 */
+	public void childrenChanged() {
+		positions.clear();
+	}
+
+	private void expunge() {
+		NodeReference reference;
+		while ((reference = (NodeReference) queue.poll()) != null) {
+			nodes.remove(reference.id);
+		}
+	}
+
+	private static final class NodeReference extends WeakReference<Node> {
+
+		final int id;
+
+		NodeReference(final Node node, final int id, final ReferenceQueue<Node> queue) {
+			super(node, queue);
+			this.id = id;
+		}
+	}
+
+}
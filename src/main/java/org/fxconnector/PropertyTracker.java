@@ -21,13 +21,31 @@ import javafx.beans.InvalidationListener;
 import javafx.beans.value.ObservableValue;
 import org.scenicview.utils.ExceptionLogger;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @SuppressWarnings("rawtypes")
 public abstract class PropertyTracker {
 
+	/**
+	 * Property getters of each class, looked up once. Methods that cannot be
+	 * made accessible are reported once too.
+	 */
+	private static final ClassValue<Accessor[]> accessors = new ClassValue<>() {
+		@Override
+		protected Accessor[] computeValue(final Class<?> type) {
+			return findAccessors(type);
+		}
+	};
+
 	final Map<ObservableValue, String> properties = new HashMap<>();
 	private final InvalidationListener propListener;
 
@@ -47,24 +65,23 @@ public abstract class PropertyTracker {
 	}
 
 	public void setTarget(final Object target) {
+		setTarget(target, Set.of());
+	}
+
+	/**
+	 * Only tracks the properties named, all when empty
+	 */
+	public void setTarget(final Object target, final Set<String> propertyNames) {
 		properties.clear();
-		// Using reflection, locate all properties and their corresponding
-		// property references
-		for (final Method method : target.getClass().getMethods()) {
-			if (method.getName().endsWith("Property")) {
-				try {
-					final Class returnType = method.getReturnType();
-					if (ObservableValue.class.isAssignableFrom(returnType)) {
-						// we've got a winner
-						final String propertyName = method.getName().substring(0, method.getName().lastIndexOf("Property"));
-						// Request access
-						method.setAccessible(true);
-						final ObservableValue property = (ObservableValue) method.invoke(target);
-						properties.put(property, propertyName);
-					}
-				} catch (final Exception e) {
-					ExceptionLogger.submitException(e, "Failed to get property " + method.getName());
-				}
+		for (final Accessor accessor : accessors.get(target.getClass())) {
+			if (!propertyNames.isEmpty() && !propertyNames.contains(accessor.propertyName)) {
+				continue;
+			}
+			try {
+				final ObservableValue property = (ObservableValue) accessor.getter.invokeExact(target);
+				properties.put(property, accessor.propertyName);
+			} catch (final Throwable e) {
+				ExceptionLogger.submitException(e, "Failed to get property " + accessor.propertyName + "Property");
 			}
 		}
 
@@ -79,4 +96,37 @@ public abstract class PropertyTracker {
 		return properties;
 	}
 
+	private static Accessor[] findAccessors(final Class<?> type) {
+		final MethodType getterType = MethodType.methodType(ObservableValue.class, Object.class);
+		final List<Accessor> found = new ArrayList<>();
+		// Using reflection, locate all properties and their corresponding
+		// property references
+		for (final Method method : type.getMethods()) {
+			if (method.getName().endsWith("Property") && method.getParameterCount() == 0 && !Modifier.isStatic(method.getModifiers())
+					&& ObservableValue.class.isAssignableFrom(method.getReturnType())) {
+				try {
+					// we've got a winner
+					final String propertyName = method.getName().substring(0, method.getName().lastIndexOf("Property"));
+					// Request access
+					method.setAccessible(true);
+					found.add(new Accessor(propertyName, MethodHandles.lookup().unreflect(method).asType(getterType)));
+				} catch (final Exception e) {
+					ExceptionLogger.submitException(e, "Failed to get property " + method.getName());
+				}
+			}
+		}
+		return found.toArray(new Accessor[0]);
+	}
+
+	private static final class Accessor {
+
+		final String propertyName;
+		final MethodHandle getter;
+
+		Accessor(final String propertyName, final MethodHandle getter) {
+			this.propertyName = propertyName;
+			this.getter = getter;
+		}
+	}
+
 }
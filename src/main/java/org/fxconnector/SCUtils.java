@@ -34,33 +34,19 @@ class SCUtils {
 	private SCUtils() {
 	}
 
-	static void removeScenicViewComponents(final Node target) {
-		/**
-		 * We should any component associated with ScenicView on close
-		 */
-		if (target instanceof Group) {
-			final List<Node> nodes = ((Group) target).getChildren();
-			nodes.removeIf(node -> !isNormalNode(node));
-		}
-		if (target instanceof Pane) {
-			final List<Node> nodes = ((Pane) target).getChildren();
-			nodes.removeIf(node -> !isNormalNode(node));
-		}
-	}
-
-	static void updateRect(final Parent overlayParent, final Node node, final Bounds bounds, final double tx, final double ty, final Rectangle rect) {
-		final Bounds b = toSceneBounds(overlayParent, node, bounds, tx, ty);
+	static void updateRect(final Node node, final Bounds bounds, final double tx, final double ty, final Rectangle rect) {
+		final Bounds b = toSceneBounds(node, bounds, tx, ty);
 		rect.setX(b.getMinX());
 		rect.setY(b.getMinY());
 		rect.setWidth(b.getMaxX() - b.getMinX());
 		rect.setHeight(b.getMaxY() - b.getMinY());
 	}
 
-	static Bounds toSceneBounds(final Parent overlayParent, final Node node, final Bounds bounds, final double tx, final double ty) {
+	static Bounds toSceneBounds(final Node node, final Bounds bounds, final double tx, final double ty) {
 		final Parent parent = node.getParent();
 		if (parent != null) {
 			// need to translate position
-			final Point2D pt = overlayParent.sceneToLocal(node.getParent().localToScene(bounds.getMinX(), bounds.getMinY()));
+			final Point2D pt = parent.localToScene(bounds.getMinX(), bounds.getMinY());
 			return new BoundingBox(pt.getX() + tx, pt.getY() + ty, bounds.getWidth(), bounds.getHeight());
 		} else {
 			// selected node is root
@@ -68,16 +54,6 @@ class SCUtils {
 		}
 	}
 
-	static void addToNode(final Parent parent, final Node node) {
-		if (parent instanceof Group) {
-			((Group) parent).getChildren().add(node);
-		} else if (parent instanceof Pane) { // instanceof Pane
-			((Pane) parent).getChildren().add(node);
-		} else if (parent != null) {
-			addToNode(findFertileParent(parent), node);
-		}
-	}
-
 	static void removeFromNode(final Parent parent, final Node node) {
 		if (parent instanceof Group) {
 			((Group) parent).getChildren().remove(node);
@@ -88,25 +64,6 @@ class SCUtils {
 		}
 	}
 
-	static Node findNode(final Node target, final int nodeUniqueID) {
-		if (!isNormalNode(target)) {
-			return null;
-		}
-
-		final List<Node> children = ChildrenGetter.getChildren(target);
-		for (int i = children.size() - 1; i >= 0; i--) {
-			final Node node = children.get(i);
-			final Node child = findNode(node, nodeUniqueID);
-			if (child != null)
-				return child;
-		}
-		if (ConnectorUtils.getNodeUniqueID(target) == nodeUniqueID) {
-			return target;
-		}
-
-		return null;
-	}
-
 	static boolean isNormalNode(final Node node) {
 		return ConnectorUtils.isNormalNode(node);
 	}
@@ -29,6 +29,12 @@ public interface StageController {
 
 	void update();
 
+	/**
+	 * Sends the whole tree instead of a diff against the last one sent, when
+	 * an update did not make it to Scenic View
+	 */
+	void fullUpdate();
+
 	void configurationUpdated(Configuration configuration);
 
 	void close();
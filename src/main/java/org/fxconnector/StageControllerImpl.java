@@ -18,6 +18,7 @@
 package org.fxconnector;
 
 import javafx.animation.Animation;
+import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
 import javafx.beans.Observable;
 import javafx.beans.property.Property;
@@ -49,16 +50,18 @@ import org.fxconnector.details.DetailPaneType;
 import org.fxconnector.event.*;
 import org.fxconnector.event.FXConnectorEvent.SVEventType;
 import org.fxconnector.gui.ComponentHighLighter;
+import org.fxconnector.gui.OverlayWindow;
 import org.fxconnector.gui.RuleGrid;
 import org.fxconnector.helper.ChildrenGetter;
 import org.fxconnector.helper.StyleSheetRefresher;
 import org.fxconnector.helper.SubWindowChecker;
+import org.fxconnector.helper.WorkerThread;
 import org.fxconnector.node.NodeType;
 import org.fxconnector.node.SVDummyNode;
 import org.fxconnector.node.SVNode;
+import org.fxconnector.node.SVNodeDiff;
 import org.fxconnector.node.SVNodeFactory;
 import org.scenicview.utils.ExceptionLogger;
-import org.scenicview.utils.Logger;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -71,7 +74,10 @@ public class StageControllerImpl implements StageController {
 
 	private StyleSheetRefresher refresher;
 
-	private Parent overlayParent;
+	/**
+	 * Draws the bounds, baseline, ruler and highlighter over the scene
+	 */
+	private OverlayWindow overlay;
 	private Parent target;
 	private Scene targetScene;
 	public Window targetWindow;
@@ -83,13 +89,27 @@ public class StageControllerImpl implements StageController {
 	private final Rectangle boundsInParentRect;
 	private final Rectangle layoutBoundsRect;
 	private final Line baselineLine;
-	private Node componentHighLighter;
+	/**
+	 * Created once and moved around, only in the scene while hovering a node
+	 */
+	private ComponentHighLighter componentHighLighter;
+	/**
+	 * Only kept while selecting components on click
+	 */
+	private HoverIndex hoverIndex;
 	private RuleGrid grid;
 
 	private FXConnectorEventDispatcher dispatcher;
 
 	private SubWindowChecker windowChecker;
 
+	/**
+	 * The node count is kept from the structure changes, and checked against
+	 * a full count from time to time if the structure changed
+	 */
+	private WorkerThread nodeCountChecker;
+	private volatile boolean nodeCountChanged;
+
 	private final InvalidationListener targetScenePropListener;
 	private final InvalidationListener targetWindowPropListener;
 	private final InvalidationListener targetWindowSceneListener;
@@ -101,8 +121,18 @@ public class StageControllerImpl implements StageController {
 
 	private final Configuration configuration = new Configuration();
 
+	private final NodeRegistry registry = new NodeRegistry();
+
+	private final EventLogFilter eventLogFilter = new EventLogFilter(registry);
+
 	boolean remote;
 
+	/**
+	 * Last tree sent to a remote Scenic View, the next ones are sent as a diff
+	 * against it
+	 */
+	private SVNode lastRoot;
+
 	AllDetails details;
 
 	private final EventHandler<? super MouseEvent> sceneHoverListener = ev -> {
@@ -120,11 +150,16 @@ public class StageControllerImpl implements StageController {
 	 * Listeners and EventHandlers
 	 */
 	private final EventHandler<? super Event> traceEventHandler = event -> {
-		if (configuration.isEventLogEnabled()) {
-			dispatchEvent(new EvLogEvent(getID(), createNode((Node) event.getSource()), event.getEventType().toString(), ""));
+		if (configuration.isEventLogEnabled() && event.getTarget() instanceof Node) {
+			traceEvent(event, (Node) event.getTarget());
 		}
 	};
 
+	/**
+	 * Dispatch chain of the event being traced, reused
+	 */
+	private final List<Node> tracedPath = new ArrayList<>();
+
 	private final ListChangeListener<Node> structureInvalidationListener;
 	private final ChangeListener<Boolean> visibilityInvalidationListener;
 
@@ -145,7 +180,12 @@ public class StageControllerImpl implements StageController {
 		this.appController = appController;
 		this.stageID = new StageID(appController.getID(), ConnectorUtils.getNodeUniqueID(target));
 
-		targetScenePropListener = o -> updateSceneDetails();
+		targetScenePropListener = o -> {
+			if (grid != null) {
+				grid.setSize(targetScene.getWidth(), targetScene.getHeight());
+			}
+			updateSceneDetails();
+		};
 		targetWindowPropListener = o -> updateWindowDetails();
 		targetWindowSceneListener = o -> {
 			if (realStageController) {
@@ -205,6 +245,7 @@ public class StageControllerImpl implements StageController {
 		};
 
 		structureInvalidationListener = c -> {
+			registry.childrenChanged();
 			try {
 				if (configuration.isAutoRefreshSceneGraph()) {
 					int difference = 0;
@@ -212,22 +253,17 @@ public class StageControllerImpl implements StageController {
 						for (final Node dead : c.getRemoved()) {
 							final SVNode node = createNode(dead);
 							dispatchEvent(new EvLogEvent(getID(), node, EvLogEvent.NODE_REMOVED, ""));
-							removeNode(dead, true);
-							if (SCUtils.isNormalNode(dead)) {
-								difference -= ConnectorUtils.getBranchCount(dead);
-							}
+							difference -= removeNode(dead, true);
 						}
 						for (final Node alive : c.getAddedSubList()) {
 							final SVNode node = createNode(alive);
 							dispatchEvent(new EvLogEvent(getID(), node, EvLogEvent.NODE_ADDED, ""));
 
-							addNewNode(alive);
-							if (SCUtils.isNormalNode(alive)) {
-								difference += ConnectorUtils.getBranchCount(alive);
-							}
+							difference += addNewNode(alive);
 						}
 					}
 					if (difference != 0) {
+						nodeCountChanged = true;
 						setNodeCount(nodeCount + difference);
 						dispatchEvent(new NodeCountEvent(getID(), nodeCount));
 					}
@@ -244,6 +280,7 @@ public class StageControllerImpl implements StageController {
 		boundsInParentRect.setOpacity(.5);
 		boundsInParentRect.setManaged(false);
 		boundsInParentRect.setMouseTransparent(true);
+		boundsInParentRect.setVisible(false);
 		layoutBoundsRect = new Rectangle();
 		layoutBoundsRect.setId(StageController.FX_CONNECTOR_BASE_ID + "layoutBoundsRect");
 		layoutBoundsRect.setFill(null);
@@ -254,35 +291,47 @@ public class StageControllerImpl implements StageController {
 		layoutBoundsRect.setStrokeWidth(1);
 		layoutBoundsRect.setManaged(false);
 		layoutBoundsRect.setMouseTransparent(true);
+		layoutBoundsRect.setVisible(false);
 		baselineLine = new Line();
 		baselineLine.setId(StageController.FX_CONNECTOR_BASE_ID + "baselineLine");
 		baselineLine.setStroke(Color.RED);
 		baselineLine.setOpacity(.75);
 		baselineLine.setStrokeWidth(1);
 		baselineLine.setManaged(false);
+		baselineLine.setVisible(false);
 		this.target = target;
 	}
 
 	@Override
 	public void close() {
-		SCUtils.removeScenicViewComponents(target);
+		if (overlay != null) {
+			overlay.dispose();
+			overlay = null;
+		}
 		if (targetScene != null) {
 			targetScene.removeEventFilter(MouseEvent.MOUSE_MOVED, sceneHoverListener);
 			targetScene.removeEventFilter(MouseEvent.MOUSE_MOVED, mousePosListener);
 			targetScene.removeEventFilter(MouseEvent.MOUSE_PRESSED, scenePressListener);
+			targetScene.removeEventFilter(Event.ANY, traceEventHandler);
 		}
 		/**
 		 * Remove the window listeners
 		 */
 		setTargetWindow(null);
 		updateListeners(target, false, true);
+		disposeHoverIndex();
 		if (refresher != null) {
 			refresher.finish();
 		}
 		if (windowChecker != null) {
 			windowChecker.finish();
 		}
+		if (nodeCountChecker != null) {
+			nodeCountChecker.finish();
+			nodeCountChecker = null;
+		}
 		dispatcher = null;
+		lastRoot = null;
 	}
 
 	@Override
@@ -290,7 +339,19 @@ public class StageControllerImpl implements StageController {
 		this.dispatcher = model2gui;
 		windowChecker = new SubWindowChecker(this);
 		windowChecker.start();
+		if (nodeCountChecker == null) {
+			nodeCountChecker = new WorkerThread(StageController.FX_CONNECTOR_BASE_ID + "NodeCountChecker." + getID(), 5000) {
+				@Override
+				protected void work() {
+					if (nodeCountChanged) {
+						Platform.runLater(StageControllerImpl.this::checkNodeCount);
+					}
+				}
+			};
+			nodeCountChecker.start();
+		}
 		details = new AllDetails(model2gui, getID());
+		lastRoot = null;
 		setTarget(target);
 		update();
 
@@ -311,8 +372,8 @@ public class StageControllerImpl implements StageController {
 		 * By node layout bounds only on main scene not on popups
 		 */
 		if (selectedNode != null && selectedNode.getScene() == targetScene) {
-			SCUtils.updateRect(overlayParent, selectedNode, selectedNode.getBoundsInParent(), 0, 0, boundsInParentRect);
-			SCUtils.updateRect(overlayParent, selectedNode, selectedNode.getLayoutBounds(), selectedNode.getLayoutX(), selectedNode.getLayoutY(), layoutBoundsRect);
+			SCUtils.updateRect(selectedNode, selectedNode.getBoundsInParent(), 0, 0, boundsInParentRect);
+			SCUtils.updateRect(selectedNode, selectedNode.getLayoutBounds(), selectedNode.getLayoutX(), selectedNode.getLayoutY(), layoutBoundsRect);
 			boundsInParentRect.setVisible(true);
 			layoutBoundsRect.setVisible(true);
 		} else {
@@ -321,10 +382,17 @@ public class StageControllerImpl implements StageController {
 		}
 	}
 
+	@Override
+	public void fullUpdate() {
+		lastRoot = null;
+		update();
+	}
+
 	@Override
 	public void update() {
-		updateListeners(target, true, false);
-		SVNode root = createNode(target);
+		setNodeCount(updateListeners(target, true, false));
+		nodeCountChanged = false;
+		SVNode root = createBranch(target);
 		/**
 		 * If the target is the root node of the scene include subwindows
 		 */
@@ -346,20 +414,24 @@ public class StageControllerImpl implements StageController {
 				final SVNode subWindows = new SVDummyNode("SubWindows", "Popup", getID().getStageID(), NodeType.SUBWINDOWS_ROOT);
 				for (final PopupWindow window : popupWindows) {
 					final SVNode subWindow = new SVDummyNode("SubWindow -" + ConnectorUtils.nodeClass(window), ConnectorUtils.nodeClass(window), window.hashCode(), NodeType.SUBWINDOW);
-					subWindow.getChildren().add(createNode(window.getScene().getRoot()));
+					subWindow.getChildren().add(createBranch(window.getScene().getRoot()));
 					subWindows.getChildren().add(subWindow);
 				}
 				app.getChildren().add(subWindows);
 			}
 			root = app;
 		}
+		if (remote) {
+			final SVNode diff = SVNodeDiff.diff(lastRoot, root);
+			lastRoot = root;
+			root = diff;
+		}
 		dispatchEvent(new NodeAddRemoveEvent(SVEventType.ROOT_UPDATED, getID(), root));
 		updateSceneDetails();
 	}
 
 	private void updateSceneDetails() {
 		// hack, since we can't listen for a STAGE prop change on scene
-		setNodeCount(ConnectorUtils.getBranchCount(target));
 		if (dispatcher != null) {
 			dispatchEvent(new SceneDetailsEvent(getID(), nodeCount, targetScene != null ? ConnectorUtils.format(targetScene.getWidth()) + " x " + ConnectorUtils.format(targetScene.getHeight()) : ""));
 		}
@@ -402,30 +474,13 @@ public class StageControllerImpl implements StageController {
 	}
 
 	private void setTarget(final Parent value) {
-		// Find parent we can use to hang bounds rectangles
+		removeHighLighter();
 		this.target = value;
-		if (overlayParent != null) {
-			SCUtils.removeFromNode(overlayParent, boundsInParentRect);
-			SCUtils.removeFromNode(overlayParent, layoutBoundsRect);
-			SCUtils.removeFromNode(overlayParent, baselineLine);
-		}
-		overlayParent = SCUtils.findFertileParent(value);
-		if (overlayParent == null) {
-			Logger.print("warning: could not find writable parent to add overlay nodes; overlays disabled.");
-			/**
-			 * This should be improved
-			 */
-			configuration.setShowBounds(false);
-			updateBoundsRects();
-			configuration.setShowBounds(true);
-			configuration.setShowBaseline(false);
-			updateBaseline();
-			configuration.setShowBaseline(true);
-
-		} else {
-			SCUtils.addToNode(overlayParent, boundsInParentRect);
-			SCUtils.addToNode(overlayParent, layoutBoundsRect);
-			SCUtils.addToNode(overlayParent, baselineLine);
+		if (overlay == null) {
+			overlay = new OverlayWindow();
+			overlay.add(boundsInParentRect);
+			overlay.add(layoutBoundsRect);
+			overlay.add(baselineLine);
 		}
 		setTargetScene(target.getScene());
 	}
@@ -439,9 +494,8 @@ public class StageControllerImpl implements StageController {
 		} else {
 			targetScene.removeEventFilter(MouseEvent.MOUSE_MOVED, sceneHoverListener);
 			targetScene.removeEventFilter(MouseEvent.MOUSE_PRESSED, scenePressListener);
-			if (componentHighLighter != null) {
-				SCUtils.removeFromNode(target, componentHighLighter);
-			}
+			removeHighLighter();
+			disposeHoverIndex();
 		}
 	}
 
@@ -451,10 +505,10 @@ public class StageControllerImpl implements StageController {
 			grid.setId(StageController.FX_CONNECTOR_BASE_ID + "ruler");
 			grid.setManaged(false);
 			grid.setStroke(color);
-			SCUtils.addToNode(target, grid);
+			overlay.add(grid);
 		} else {
 			if (grid != null) {
-				SCUtils.removeFromNode(target, grid);
+				overlay.remove(grid);
 				grid = null;
 			}
 		}
@@ -462,11 +516,10 @@ public class StageControllerImpl implements StageController {
 
 	private void updateBaseline(final boolean show, final Point2D orig, final double width) {
 		if (show) {
-			final Point2D pt = overlayParent.sceneToLocal(orig);
-			baselineLine.setStartX(pt.getX());
-			baselineLine.setStartY(pt.getY());
-			baselineLine.setEndX(pt.getX() + width);
-			baselineLine.setEndY(pt.getY());
+			baselineLine.setStartX(orig.getX());
+			baselineLine.setStartY(orig.getY());
+			baselineLine.setEndX(orig.getX() + width);
+			baselineLine.setEndY(orig.getY());
 			baselineLine.setVisible(true);
 		} else {
 			baselineLine.setVisible(false);
@@ -479,9 +532,15 @@ public class StageControllerImpl implements StageController {
 			targetScene.widthProperty().removeListener(targetScenePropListener);
 			targetScene.heightProperty().removeListener(targetScenePropListener);
 			targetScene.rootProperty().removeListener(targetSceneRootListener);
+			targetScene.removeEventFilter(Event.ANY, traceEventHandler);
 		}
 		targetScene = value;
+		overlay.setScene(value);
 		if (targetScene != null) {
+			if (grid != null) {
+				grid.setSize(targetScene.getWidth(), targetScene.getHeight());
+			}
+			updateEventTracing();
 			setTargetWindow(targetScene.getWindow());
 			targetScene.widthProperty().addListener(targetScenePropListener);
 			targetScene.heightProperty().addListener(targetScenePropListener);
@@ -506,21 +565,49 @@ public class StageControllerImpl implements StageController {
 	private void highlightHovered(final double x, final double y) {
 		final Node nodeData = getHoveredNode(x, y);
 		if (previousHightLightedData != nodeData) {
-			previousHightLightedData = null;
-			if (componentHighLighter != null) {
-				SCUtils.removeFromNode(target, componentHighLighter);
+			previousHightLightedData = nodeData;
+			if (nodeData == null) {
+				if (componentHighLighter != null) {
+					componentHighLighter.setVisible(false);
+				}
+				return;
 			}
-			if (nodeData != null) {
-				// TODO Change this
-				componentHighLighter = new ComponentHighLighter(createNode(nodeData), targetWindow != null ? targetWindow.getWidth() : -1, targetWindow != null ? targetWindow.getHeight() : -1, SCUtils.toSceneBounds(overlayParent, nodeData, nodeData.getBoundsInParent(), 0, 0));
-				SCUtils.addToNode(target, componentHighLighter);
+			if (componentHighLighter == null) {
+				componentHighLighter = new ComponentHighLighter();
 			}
+			final String name = ConnectorUtils.nodeClass(nodeData) + (nodeData.getId() != null ? " \"" + nodeData.getId() + "\"" : "");
+			// Only a frame around the node when the window is unknown
+			final double width = targetWindow != null ? targetScene.getWidth() : -1;
+			final double height = targetWindow != null ? targetScene.getHeight() : -1;
+			componentHighLighter.highlight(name, width, height, SCUtils.toSceneBounds(nodeData, nodeData.getBoundsInParent(), 0, 0));
+			componentHighLighter.setVisible(true);
+			overlay.add(componentHighLighter);
 		}
+	}
 
+	private void removeHighLighter() {
+		previousHightLightedData = null;
+		if (componentHighLighter != null && overlay != null) {
+			overlay.remove(componentHighLighter);
+		}
 	}
 
 	private Node getHoveredNode(final double x, final double y) {
-		return SCUtils.getHoveredNode(configuration, target, x, y);
+		if (!SCUtils.isNormalNode(target)) {
+			return null;
+		}
+		if (hoverIndex == null || !hoverIndex.isFor(target)) {
+			disposeHoverIndex();
+			hoverIndex = new HoverIndex(target, configuration);
+		}
+		return hoverIndex.getHoveredNode(x, y);
+	}
+
+	private void disposeHoverIndex() {
+		if (hoverIndex != null) {
+			hoverIndex.dispose();
+			hoverIndex = null;
+		}
 	}
 
 	private boolean canStylesheetsBeRefreshed() {
@@ -529,6 +616,18 @@ public class StageControllerImpl implements StageController {
 
 	@Override
 	public void configurationUpdated(final Configuration configuration) {
+		final boolean eventLogScopeOnly = this.configuration.isSameExceptEventLogScope(configuration) && !this.configuration.isSameEventLogScope(configuration);
+		this.configuration.setEventLogBranch(configuration.getEventLogStageID(), configuration.getEventLogNodeID());
+		this.configuration.setEventLogTypes(configuration.getEventLogTypes());
+		this.configuration.setEventLogIgnoredTypes(configuration.getEventLogIgnoredTypes());
+		this.configuration.setEventLogRate(configuration.getEventLogRate());
+		this.configuration.setEventLogProperties(configuration.getEventLogProperties());
+		eventLogFilter.configure(this.configuration, getID());
+		if (eventLogScopeOnly) {
+			// Nothing else changed, the scene graph does not have to be sent again
+			updatePropertyTrackers();
+			return;
+		}
 		if (configuration.isRegisterShortcuts() != this.configuration.isRegisterShortcuts()) {
 			this.configuration.setRegisterShortcuts(configuration.isRegisterShortcuts());
 			updateShortcuts();
@@ -568,7 +667,10 @@ public class StageControllerImpl implements StageController {
 				grid.setStroke(Color.web(configuration.getRulerColor()));
 		}
 		this.configuration.setAutoRefreshSceneGraph(configuration.isAutoRefreshSceneGraph());
-		this.configuration.setEventLogEnabled(configuration.isEventLogEnabled());
+		if (configuration.isEventLogEnabled() != this.configuration.isEventLogEnabled()) {
+			this.configuration.setEventLogEnabled(configuration.isEventLogEnabled());
+			updateEventTracing();
+		}
 		this.configuration.setIgnoreMouseTransparent(configuration.isIgnoreMouseTransparent());
 		this.configuration.setCollapseContentControls(configuration.isCollapseContentControls());
 		this.configuration.setCollapseControls(configuration.isCollapseControls());
@@ -598,7 +700,7 @@ public class StageControllerImpl implements StageController {
 			if (svNode.getNodeType() == NodeType.REAL_NODE) {
 				this.selectedNode = svNode.getImpl();
 			} else {
-				this.selectedNode = SCUtils.findNode(target, svNode.getNodeId());
+				this.selectedNode = registry.getNode(svNode.getNodeId());
 			}
 			if (selectedNode != null) {
 				selectedNode.boundsInParentProperty().addListener(selectedNodePropListener);
@@ -662,18 +764,21 @@ public class StageControllerImpl implements StageController {
 		if (tracker != null) {
 			tracker.clear();
 		}
-		if (add && configuration.isEventLogEnabled()) {
+		if (add && configuration.isEventLogEnabled() && eventLogFilter.isTracked(node)) {
 			tracker = new PropertyTracker() {
 
 				@Override
 				protected void updateDetail(final String propertyName, @SuppressWarnings("rawtypes") final ObservableValue property) {
+					if (!eventLogFilter.accept(null, node)) {
+						return;
+					}
 					/**
 					 * Remove the bean
 					 */
 					dispatchEvent(new EvLogEvent(getID(), createNode(node), EvLogEvent.PROPERTY_CHANGED, propertyName + "=" + property.getValue()));
 				}
 			};
-			tracker.setTarget(node);
+			tracker.setTarget(node, eventLogFilter.getProperties());
 			propertyTrackers.put(node, tracker);
 		}
 	}
@@ -705,37 +810,50 @@ public class StageControllerImpl implements StageController {
 		}
 	}
 
-	private void addNewNode(final Node node) {
+	/**
+	 * Returns the number of nodes of the branch
+	 */
+	private int addNewNode(final Node node) {
 		if (SCUtils.isNormalNode(node)) {
-			updateListeners(node, true, false);
-			final SVNode svNode = createNode(node);
+			final int count = updateListeners(node, true, false);
+			final SVNode svNode = createBranch(node);
 			dispatchEvent(new NodeAddRemoveEvent(SVEventType.NODE_ADDED, getID(), svNode));
+			return count;
 		}
+		return 0;
 	}
 
-	private void removeNode(final Node node, final boolean removeVisibilityListener) {
+	/**
+	 * Returns the number of nodes of the branch
+	 */
+	private int removeNode(final Node node, final boolean removeVisibilityListener) {
 		if (SCUtils.isNormalNode(node)) {
-			updateListeners(node, false, removeVisibilityListener);
+			final int count = updateListeners(node, false, removeVisibilityListener);
 			dispatchEvent(new NodeAddRemoveEvent(SVEventType.NODE_REMOVED, getID(), createNode(node)));
+			return count;
 		}
+		return 0;
 	}
 
-	private void updateListeners(final Node node, final boolean add, final boolean removeVisibilityListener) {
+	/**
+	 * Returns the number of nodes of the branch, counted the same way as
+	 * {@link ConnectorUtils#getBranchCount(Node)}
+	 */
+	private int updateListeners(final Node node, final boolean add, final boolean removeVisibilityListener) {
+		int count = 0;
 		if (add) {
 			if (SCUtils.isNormalNode(node)) {
+				count = 1;
+				registry.register(node);
 				node.visibleProperty().removeListener(visibilityInvalidationListener);
 				node.visibleProperty().addListener(visibilityInvalidationListener);
 				propertyTracker(node, true);
 
-				node.removeEventFilter(Event.ANY, traceEventHandler);
-				if (configuration.isEventLogEnabled())
-					node.addEventFilter(Event.ANY, traceEventHandler);
-
 				ObservableList<Node> children = ChildrenGetter.getChildren(node);
 				children.removeListener(structureInvalidationListener);
 				children.addListener(structureInvalidationListener);
 				for (Node child : children) {
-					updateListeners(child, add, removeVisibilityListener);
+					count += updateListeners(child, add, removeVisibilityListener);
 				}
 			}
 		} else {
@@ -755,19 +873,110 @@ public class StageControllerImpl implements StageController {
 				 * listeners of its childrens because the visibility is
 				 * reduced by their parent
 				 */
-				updateListeners(child, add, true);
+				count += updateListeners(child, add, true);
 			}
 			children.removeListener(structureInvalidationListener);
 			if (node != null && removeVisibilityListener) {
 				node.visibleProperty().removeListener(visibilityInvalidationListener);
 				propertyTracker(node, false);
-				node.removeEventFilter(Event.ANY, traceEventHandler);
 			}
+			count = node != null && SCUtils.isNormalNode(node) ? count + 1 : 0;
+		}
+		return count;
+	}
+
+	private void checkNodeCount() {
+		if (nodeCountChanged && dispatcher != null) {
+			nodeCountChanged = false;
+			final int count = ConnectorUtils.getBranchCount(target);
+			if (count != nodeCount) {
+				setNodeCount(count);
+				dispatchEvent(new NodeCountEvent(getID(), nodeCount));
+			}
+		}
+	}
+
+	/**
+	 * Only the nodes in the traced branch get property listeners
+	 */
+	private void updatePropertyTrackers() {
+		for (final PropertyTracker tracker : propertyTrackers.values()) {
+			tracker.clear();
+		}
+		propertyTrackers.clear();
+		if (configuration.isEventLogEnabled()) {
+			trackProperties(target);
+		}
+	}
+
+	private void trackProperties(final Node node) {
+		if (SCUtils.isNormalNode(node)) {
+			propertyTracker(node, true);
+			for (final Node child : ChildrenGetter.getChildren(node)) {
+				trackProperties(child);
+			}
+		}
+	}
+
+	/**
+	 * A single filter on the scene traces the events, instead of one on each
+	 * node
+	 */
+	private void updateEventTracing() {
+		if (targetScene != null) {
+			targetScene.removeEventFilter(Event.ANY, traceEventHandler);
+			if (configuration.isEventLogEnabled()) {
+				targetScene.addEventFilter(Event.ANY, traceEventHandler);
+			}
+		}
+	}
+
+	/**
+	 * Traces the event for each node of its dispatch chain inside the target,
+	 * from the top, as filters on those nodes would have seen it. This runs
+	 * on the scene before the filters of the nodes, so unlike filters on each
+	 * node it still traces the nodes under one whose filter consumes the
+	 * event, it only stops for an event already consumed on the scene.
+	 */
+	private void traceEvent(final Event event, final Node eventTarget) {
+		tracedPath.clear();
+		Node node = eventTarget;
+		while (node != null && node != target) {
+			tracedPath.add(node);
+			node = node.getParent();
+		}
+		if (node == null) {
+			// Outside the target
+			tracedPath.clear();
+			return;
+		}
+		tracedPath.add(target);
+		try {
+			// Once the branch root is met, the nodes under it are in the branch
+			final Node root = eventLogFilter.getBranchRoot();
+			boolean inBranch = eventLogFilter.isInBranch(target);
+			for (int i = tracedPath.size() - 1; i >= 0 && !event.isConsumed(); i--) {
+				node = tracedPath.get(i);
+				if (!SCUtils.isNormalNode(node)) {
+					// Scenic View nodes and their content are not traced
+					break;
+				}
+				inBranch = inBranch || node == root;
+				if (inBranch && eventLogFilter.accept(event.getEventType())) {
+					dispatchEvent(new EvLogEvent(getID(), createNode(node), event.getEventType().toString(), ""));
+				}
+			}
+		} finally {
+			tracedPath.clear();
 		}
 	}
 
 	private SVNode createNode(final Node node) {
-		return SVNodeFactory.createNode(node, configuration, remote);
+		return SVNodeFactory.createNode(node, registry, configuration, remote);
+	}
+
+	private SVNode createBranch(final Node node) {
+		return SVNodeFactory.createBranch(node, registry, configuration, remote);
 	}
 
 	@Override
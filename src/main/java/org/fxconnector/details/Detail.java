@@ -291,6 +291,18 @@ public class Detail implements Serializable {
 		return realValue;
 	}
 
+	/**
+	 * Edition state of a detail read by {@link DetailCodec}
+	 */
+	void setEdition(final EditionType editionType, final String[] validItems, final double maxValue, final double minValue, final String realValue, final boolean hasGridConstraints) {
+		this.editionType = editionType;
+		this.validItems = validItems;
+		this.maxValue = maxValue;
+		this.minValue = minValue;
+		this.realValue = realValue;
+		this.hasGridConstraints = hasGridConstraints;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,96 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.details;
+
+import org.fxconnector.StageID;
+import org.fxconnector.event.WireInput;
+import org.fxconnector.event.WireOutput;
+
+import java.io.IOException;
+
+/**
+ * Compact form of the details shipped by the remote agent. The stage is not
+ * written, the details always belong to the stage of their event.
+ */
+public final class DetailCodec {
+
+	private DetailCodec() {
+	}
+
+	public static void write(final WireOutput out, final Detail detail) {
+		out.writeEnum(detail.getDetailType());
+		out.writeInt(detail.getDetailID());
+		out.writeString(detail.getDetailName());
+		out.writeBoolean(detail.isDefault());
+		out.writeString(detail.getProperty());
+		out.writeString(detail.getLabel());
+		out.writeString(detail.getValue());
+		out.writeString(detail.getReason());
+		out.writeEnum(detail.getLabelType());
+		out.writeEnum(detail.getValueType());
+		out.writeEnum(detail.getEditionType());
+		final String[] validItems = detail.getValidItems();
+		if (validItems == null) {
+			out.writeVarInt(0);
+		} else {
+			out.writeVarInt(validItems.length + 1);
+			for (final String item : validItems) {
+				out.writeString(item);
+			}
+		}
+		out.writeDouble(detail.getMaxValue());
+		out.writeDouble(detail.getMinValue());
+		out.writeString(detail.getRealValue());
+		out.writeBoolean(detail.hasGridConstraints());
+		out.writeVarInt(detail.getGridConstraintsDetails().size());
+		for (final GridConstraintsDetail constraint : detail.getGridConstraintsDetails()) {
+			out.writeString(constraint.getText());
+			out.writeVarInt(constraint.getColIndex());
+			out.writeVarInt(constraint.getRowIndex());
+		}
+	}
+
+	public static Detail read(final WireInput in, final StageID stageID) throws IOException {
+		final DetailPaneType type = in.readEnum(DetailPaneType.values());
+		final Detail detail = new Detail(null, stageID, type, in.readInt());
+		detail.setDetailName(in.readString());
+		detail.setIsDefault(in.readBoolean());
+		detail.setProperty(in.readString());
+		detail.setLabel(in.readString());
+		detail.setValue(in.readString());
+		detail.setReason(in.readString());
+		detail.setLabelType(in.readEnum(Detail.LabelType.values()));
+		detail.setValueType(in.readEnum(Detail.ValueType.values()));
+		final Detail.EditionType editionType = in.readEnum(Detail.EditionType.values());
+		final int items = in.readVarInt() - 1;
+		String[] validItems = null;
+		if (items >= 0) {
+			validItems = new String[items];
+			for (int i = 0; i < items; i++) {
+				validItems[i] = in.readString();
+			}
+		}
+		detail.setEdition(editionType, validItems, in.readDouble(), in.readDouble(), in.readString(), in.readBoolean());
+		final int constraints = in.readVarInt();
+		for (int i = 0; i < constraints; i++) {
+			detail.getGridConstraintsDetails().add(new GridConstraintsDetail(in.readString(), in.readVarInt(), in.readVarInt()));
+		}
+		return detail;
+	}
+
+}
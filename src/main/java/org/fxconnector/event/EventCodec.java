@@ -0,0 +1,137 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.event;
+
+import javafx.scene.input.KeyCode;
+import org.fxconnector.StageID;
+import org.fxconnector.details.Detail;
+import org.fxconnector.details.DetailCodec;
+import org.fxconnector.details.DetailPaneType;
+import org.fxconnector.event.FXConnectorEvent.SVEventType;
+import org.fxconnector.node.SVNodeCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary form of a batch of events, much smaller and cheaper to build than
+ * the serialized objects. Events without a compact form (animations, css)
+ * are embedded serialized.
+ */
+public final class EventCodec {
+
+	/**
+	 * Bump whenever the format changes, the agent falls back to serialization
+	 * when both sides do not agree
+	 */
+	public static final int VERSION = 2;
+
+	private EventCodec() {
+	}
+
+	public static byte[] encode(final List<FXConnectorEvent> events) throws IOException {
+		final WireOutput out = new WireOutput();
+		out.writeVarInt(events.size());
+		for (final FXConnectorEvent event : events) {
+			write(out, event);
+		}
+		return out.toByteArray();
+	}
+
+	public static List<FXConnectorEvent> decode(final byte[] data) throws IOException {
+		final WireInput in = new WireInput(data);
+		final int count = in.readVarInt();
+		final List<FXConnectorEvent> events = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			events.add(read(in));
+		}
+		return events;
+	}
+
+	private static void write(final WireOutput out, final FXConnectorEvent event) throws IOException {
+		out.writeEnum(event.getType());
+		final StageID id = event.getStageID();
+		out.writeInt(id.getAppID());
+		out.writeInt(id.getStageID());
+		out.writeString(id.getName());
+		switch (event.getType()) {
+			case EVENT_LOG -> {
+				final EvLogEvent ev = (EvLogEvent) event;
+				SVNodeCodec.write(out, ev.getSource());
+				out.writeString(ev.getEventType());
+				out.writeString(ev.getEventValue());
+			}
+			case MOUSE_POSITION -> out.writeString(((MousePosEvent) event).getPosition());
+			case WINDOW_DETAILS -> {
+				final WindowDetailsEvent ev = (WindowDetailsEvent) event;
+				out.writeString(ev.getWindowType());
+				out.writeString(ev.getBounds());
+				out.writeBoolean(ev.isFocused());
+				out.writeBoolean(ev.isStylesRefreshable());
+			}
+			case NODE_SELECTED -> SVNodeCodec.write(out, ((NodeSelectedEvent) event).getNode());
+			case NODE_ADDED, NODE_REMOVED, ROOT_UPDATED -> SVNodeCodec.write(out, ((NodeAddRemoveEvent) event).getNode());
+			case NODE_COUNT -> out.writeVarInt(((NodeCountEvent) event).getNodeCount());
+			case SCENE_DETAILS -> {
+				final SceneDetailsEvent ev = (SceneDetailsEvent) event;
+				out.writeVarInt(ev.getNodeCount());
+				out.writeString(ev.getSize());
+			}
+			case DETAILS, DETAIL_UPDATED -> {
+				final DetailsEvent ev = (DetailsEvent) event;
+				out.writeEnum(ev.getPaneType());
+				out.writeString(ev.getPaneName());
+				out.writeVarInt(ev.getDetails().size());
+				for (final Detail detail : ev.getDetails()) {
+					DetailCodec.write(out, detail);
+				}
+			}
+			case SHORTCUT -> out.writeEnum(((ShortcutEvent) event).getCode());
+			default -> out.writeObject(event);
+		}
+	}
+
+	private static FXConnectorEvent read(final WireInput in) throws IOException {
+		final SVEventType type = in.readEnum(SVEventType.values());
+		final StageID id = new StageID(in.readInt(), in.readInt());
+		id.setName(in.readString());
+		return switch (type) {
+			case EVENT_LOG -> new EvLogEvent(id, SVNodeCodec.read(in), in.readString(), in.readString());
+			case MOUSE_POSITION -> new MousePosEvent(id, in.readString());
+			case WINDOW_DETAILS -> new WindowDetailsEvent(id, in.readString(), in.readString(), in.readBoolean(), in.readBoolean());
+			case NODE_SELECTED -> new NodeSelectedEvent(id, SVNodeCodec.read(in));
+			case NODE_ADDED, NODE_REMOVED, ROOT_UPDATED -> new NodeAddRemoveEvent(type, id, SVNodeCodec.read(in));
+			case NODE_COUNT -> new NodeCountEvent(id, in.readVarInt());
+			case SCENE_DETAILS -> new SceneDetailsEvent(id, in.readVarInt(), in.readString());
+			case DETAILS, DETAIL_UPDATED -> {
+				final DetailPaneType paneType = in.readEnum(DetailPaneType.values());
+				final String paneName = in.readString();
+				final int count = in.readVarInt();
+				final List<Detail> details = new ArrayList<>(count);
+				for (int i = 0; i < count; i++) {
+					details.add(DetailCodec.read(in, id));
+				}
+				yield new DetailsEvent(type, id, paneType, paneName, details);
+			}
+			case SHORTCUT -> new ShortcutEvent(id, in.readEnum(KeyCode.values()));
+			default -> (FXConnectorEvent) in.readObject();
+		};
+	}
+
+}
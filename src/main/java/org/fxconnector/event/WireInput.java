@@ -0,0 +1,128 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads what {@link WireOutput} has written
+ */
+public final class WireInput {
+
+	private final byte[] buffer;
+	private int position;
+	private final List<String> strings = new ArrayList<>();
+
+	public WireInput(final byte[] buffer) {
+		this.buffer = buffer;
+	}
+
+	public int readVarInt() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final int b = read();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new StreamCorruptedException("Malformed varint");
+	}
+
+	public int readInt() throws IOException {
+		final int value = readVarInt();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public boolean readBoolean() throws IOException {
+		return read() != 0;
+	}
+
+	public double readDouble() throws IOException {
+		long bits = 0;
+		for (int i = 0; i < 8; i++) {
+			bits |= ((long) read()) << (i * 8);
+		}
+		return Double.longBitsToDouble(bits);
+	}
+
+	public String readString() throws IOException {
+		final int index = readVarInt();
+		if (index == WireOutput.NULL_STRING) {
+			return null;
+		} else if (index == WireOutput.NEW_STRING) {
+			final String value = new String(readBytes(), StandardCharsets.UTF_8);
+			strings.add(value);
+			return value;
+		} else if (index - 2 < strings.size()) {
+			return strings.get(index - 2);
+		}
+		throw new StreamCorruptedException("Unknown string index " + index);
+	}
+
+	public byte[] readBytes() throws IOException {
+		final int length = readVarInt() - 1;
+		if (length < 0) {
+			return null;
+		}
+		if (position + length > buffer.length) {
+			throw new EOFException();
+		}
+		final byte[] value = Arrays.copyOfRange(buffer, position, position + length);
+		position += length;
+		return value;
+	}
+
+	public Object readObject() throws IOException {
+		final byte[] bytes = readBytes();
+		if (bytes == null) {
+			return null;
+		}
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return ois.readObject();
+		} catch (final ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+
+	public <E extends Enum<E>> E readEnum(final E[] values) throws IOException {
+		final int ordinal = readVarInt();
+		if (ordinal == 0) {
+			return null;
+		} else if (ordinal <= values.length) {
+			return values[ordinal - 1];
+		}
+		throw new StreamCorruptedException("Unknown enum ordinal " + (ordinal - 1));
+	}
+
+	private int read() throws IOException {
+		if (position >= buffer.length) {
+			throw new EOFException();
+		}
+		return buffer[position++] & 0xFF;
+	}
+
+}
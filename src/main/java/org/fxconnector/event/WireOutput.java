@@ -0,0 +1,125 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Buffer used by {@link EventCodec}. Integers are written as varints and
+ * strings go through a table so repeated class and property names are only
+ * written once per buffer.
+ */
+public final class WireOutput {
+
+	static final int NULL_STRING = 0;
+	static final int NEW_STRING = 1;
+
+	private byte[] buffer = new byte[512];
+	private int count;
+	private final Map<String, Integer> strings = new HashMap<>();
+
+	public void writeVarInt(int value) {
+		while ((value & ~0x7F) != 0) {
+			write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		write(value);
+	}
+
+	/**
+	 * Zigzag encoded so negative values (hash based IDs) stay small
+	 */
+	public void writeInt(final int value) {
+		writeVarInt((value << 1) ^ (value >> 31));
+	}
+
+	public void writeBoolean(final boolean value) {
+		write(value ? 1 : 0);
+	}
+
+	public void writeDouble(final double value) {
+		final long bits = Double.doubleToLongBits(value);
+		for (int i = 0; i < 8; i++) {
+			write((int) (bits >>> (i * 8)));
+		}
+	}
+
+	public void writeString(final String value) {
+		if (value == null) {
+			writeVarInt(NULL_STRING);
+			return;
+		}
+		final Integer index = strings.get(value);
+		if (index != null) {
+			writeVarInt(index + 2);
+		} else {
+			strings.put(value, strings.size());
+			writeVarInt(NEW_STRING);
+			writeBytes(value.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	public void writeBytes(final byte[] value) {
+		if (value == null) {
+			writeVarInt(0);
+			return;
+		}
+		writeVarInt(value.length + 1);
+		ensureCapacity(value.length);
+		System.arraycopy(value, 0, buffer, count, value.length);
+		count += value.length;
+	}
+
+	public void writeEnum(final Enum<?> value) {
+		writeVarInt(value == null ? 0 : value.ordinal() + 1);
+	}
+
+	/**
+	 * Fallback for the values without a compact form
+	 */
+	public void writeObject(final Serializable value) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+			oos.writeObject(value);
+		}
+		writeBytes(bytes.toByteArray());
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, count);
+	}
+
+	private void write(final int value) {
+		ensureCapacity(1);
+		buffer[count++] = (byte) value;
+	}
+
+	private void ensureCapacity(final int length) {
+		if (count + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+		}
+	}
+
+}
@@ -21,67 +21,114 @@ import javafx.geometry.Bounds;
 import javafx.scene.Group;
 import javafx.scene.control.TitledPane;
 import javafx.scene.paint.Color;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
 import javafx.scene.shape.Rectangle;
-import javafx.scene.shape.Shape;
 import javafx.scene.text.Text;
 import org.fxconnector.ConnectorUtils;
 import org.fxconnector.StageController;
-import org.fxconnector.node.SVNode;
 
+/**
+ * Highlights the hovered component. It is created once and moved from node to
+ * node, so hovering does not add nodes to the inspected scene.
+ */
 public class ComponentHighLighter extends Group {
 
-	public ComponentHighLighter(final SVNode node, final double width, final double height, final Bounds bounds) {
-		if (width == -1) {
-			final Rectangle rect = new Rectangle();
-			rect.setFill(Color.TRANSPARENT);
-			rect.setStroke(Color.ORANGE);
-			rect.setMouseTransparent(true);
-			rect.setLayoutX(bounds.getMinX());
-			rect.setLayoutY(bounds.getMinY());
-			rect.setStrokeWidth(3);
-			rect.setWidth(bounds.getMaxX() - bounds.getMinX());
-			rect.setHeight(bounds.getMaxY() - bounds.getMinY());
-			getChildren().add(rect);
-		} else {
-			final Rectangle base = new Rectangle(width, height);
-			final Rectangle rect = new Rectangle();
-			rect.setLayoutX(bounds.getMinX());
-			rect.setLayoutY(bounds.getMinY());
-			rect.setStrokeWidth(3);
-			rect.setWidth(bounds.getMaxX() - bounds.getMinX());
-			rect.setHeight(bounds.getMaxY() - bounds.getMinY());
-			final Shape shape = Shape.subtract(base, rect);
-			shape.setMouseTransparent(false);
-			shape.setFill(Color.BLACK);
-			shape.setOpacity(0.7);
-			getChildren().add(shape);
-			final TitledPane pane = new TitledPane();
-			pane.setCollapsible(false);
-			pane.setText(node.getExtendedId());
-			pane.setPrefHeight(60);
-			pane.setPrefWidth(100);
-			final Text label = new Text();
-			label.setText("x:" + ConnectorUtils.format(bounds.getMinX()) + " y:" + ConnectorUtils.format(bounds.getMinY()) + "\nw:" + ConnectorUtils.format(rect.getWidth()) + " h:" + ConnectorUtils.format(rect.getHeight()));
-			pane.setContent(label);
-			pane.setLayoutX(bounds.getMinX() + (rect.getWidth() / 2) - (pane.getPrefWidth() / 2));
-			pane.setFocusTraversable(false);
+	private static final double PANE_WIDTH = 100;
+	private static final double PANE_HEIGHT = 60;
+
+	/**
+	 * Used when the size of the window is unknown
+	 */
+	private final Rectangle frame = new Rectangle();
+	/**
+	 * The window darkened except the component, even odd fill of both outlines
+	 */
+	private final Path shade = new Path();
+	private final TitledPane pane = new TitledPane();
+	private final Text label = new Text();
+
+	public ComponentHighLighter() {
+		frame.setFill(Color.TRANSPARENT);
+		frame.setStroke(Color.ORANGE);
+		frame.setMouseTransparent(true);
+		frame.setStrokeWidth(3);
 
-			if (pane.getLayoutX() < 0) {
-				pane.setLayoutX(0);
-			} else if (pane.getLayoutX() + pane.getPrefWidth() >= width) {
-				pane.setLayoutX(width - pane.getPrefWidth());
-			}
-			if (bounds.getMinY() - pane.getPrefHeight() >= 0) {
-				pane.setLayoutY(bounds.getMinY() - pane.getPrefHeight());
-			} else if (bounds.getMinY() + rect.getHeight() + pane.getPrefHeight() <= height) {
-				pane.setLayoutY(bounds.getMinY() + rect.getHeight());
-			} else {
-				pane.setLayoutY(0);
-			}
-			getChildren().add(pane);
+		for (int i = 0; i < 2; i++) {
+			shade.getElements().addAll(new MoveTo(), new LineTo(), new LineTo(), new LineTo(), new LineTo());
 		}
+		shade.setFillRule(FillRule.EVEN_ODD);
+		shade.setStroke(null);
+		shade.setMouseTransparent(false);
+		shade.setFill(Color.BLACK);
+		shade.setOpacity(0.7);
+
+		pane.setCollapsible(false);
+		pane.setPrefHeight(PANE_HEIGHT);
+		pane.setPrefWidth(PANE_WIDTH);
+		pane.setContent(label);
+		pane.setFocusTraversable(false);
+
+		getChildren().addAll(frame, shade, pane);
 		setManaged(false);
 		setId(StageController.FX_CONNECTOR_BASE_ID + "componentHighLighter");
 	}
 
+	/**
+	 * Moves the highlight to the given scene bounds, a width of -1 only draws
+	 * a frame around them
+	 */
+	public void highlight(final String name, final double width, final double height, final Bounds bounds) {
+		final double rectWidth = bounds.getMaxX() - bounds.getMinX();
+		final double rectHeight = bounds.getMaxY() - bounds.getMinY();
+		final boolean framed = width == -1;
+		frame.setVisible(framed);
+		shade.setVisible(!framed);
+		pane.setVisible(!framed);
+		if (framed) {
+			frame.setLayoutX(bounds.getMinX());
+			frame.setLayoutY(bounds.getMinY());
+			frame.setWidth(rectWidth);
+			frame.setHeight(rectHeight);
+			return;
+		}
+		// The component is clipped to the window like the subtraction was
+		final double minX = Math.max(0, Math.min(width, bounds.getMinX()));
+		final double minY = Math.max(0, Math.min(height, bounds.getMinY()));
+		final double maxX = Math.max(minX, Math.min(width, bounds.getMaxX()));
+		final double maxY = Math.max(minY, Math.min(height, bounds.getMaxY()));
+		setOutline(0, 0, 0, width, height);
+		setOutline(1, minX, minY, maxX, maxY);
+
+		pane.setText(name);
+		label.setText("x:" + ConnectorUtils.format(bounds.getMinX()) + " y:" + ConnectorUtils.format(bounds.getMinY()) + "\nw:" + ConnectorUtils.format(rectWidth) + " h:" + ConnectorUtils.format(rectHeight));
+		pane.setLayoutX(bounds.getMinX() + (rectWidth / 2) - (PANE_WIDTH / 2));
+		if (pane.getLayoutX() < 0) {
+			pane.setLayoutX(0);
+		} else if (pane.getLayoutX() + PANE_WIDTH >= width) {
+			pane.setLayoutX(width - PANE_WIDTH);
+		}
+		if (bounds.getMinY() - PANE_HEIGHT >= 0) {
+			pane.setLayoutY(bounds.getMinY() - PANE_HEIGHT);
+		} else if (bounds.getMinY() + rectHeight + PANE_HEIGHT <= height) {
+			pane.setLayoutY(bounds.getMinY() + rectHeight);
+		} else {
+			pane.setLayoutY(0);
+		}
+	}
+
+	private void setOutline(final int index, final double minX, final double minY, final double maxX, final double maxY) {
+		final double[] points = { minX, minY, maxX, minY, maxX, maxY, minX, maxY };
+		final MoveTo move = (MoveTo) shade.getElements().get(index * 5);
+		move.setX(minX);
+		move.setY(minY);
+		for (int i = 1; i < 5; i++) {
+			final LineTo line = (LineTo) shade.getElements().get(index * 5 + i);
+			line.setX(points[(i % 4) * 2]);
+			line.setY(points[(i % 4) * 2 + 1]);
+		}
+	}
+
 }
@@ -0,0 +1,233 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.gui;
+
+import javafx.beans.InvalidationListener;
+import javafx.event.Event;
+import javafx.event.EventTarget;
+import javafx.event.EventType;
+import javafx.scene.Cursor;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.input.InputEvent;
+import javafx.scene.input.MouseDragEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.shape.Rectangle;
+import javafx.stage.Popup;
+import javafx.stage.Window;
+import org.fxconnector.ConnectorUtils;
+import org.fxconnector.StageController;
+
+import java.util.List;
+
+/**
+ * Transparent popup laid over the scene being inspected, so the bounds,
+ * baseline, ruler and highlighter are drawn without touching the scene graph
+ * of the application. Its content uses the coordinates of the scene, and it
+ * is only shown while some of its nodes are visible.
+ * <p>
+ * Depending on the platform the popup may take the mouse events over the
+ * scene while shown. Its mouse and scroll events are fired again on the node
+ * of the scene under the mouse, or on the node that got the press while a
+ * button is down, so they also go through the filters of the scene.
+ */
+public class OverlayWindow {
+
+	private final Popup popup = new Popup();
+	/**
+	 * Keeps the top left corner of the content at the origin of the scene
+	 */
+	private final Rectangle area = new Rectangle();
+	private final Group content = new Group();
+	private Scene scene;
+	private Window window;
+	private EventTarget pressed;
+
+	private final InvalidationListener positionListener = o -> updatePosition();
+	private final InvalidationListener showingListener = o -> updateShowing();
+
+	public OverlayWindow() {
+		area.setFill(null);
+		final Rectangle clip = new Rectangle();
+		clip.widthProperty().bind(area.widthProperty());
+		clip.heightProperty().bind(area.heightProperty());
+		content.setClip(clip);
+
+		final Group root = new Group(area, content);
+		root.setId(StageController.FX_CONNECTOR_BASE_ID + "overlay");
+		root.setMouseTransparent(true);
+		popup.getContent().add(root);
+		popup.setAutoFix(false);
+		popup.setAutoHide(false);
+		popup.setHideOnEscape(false);
+		popup.setConsumeAutoHidingEvents(false);
+		popup.getScene().addEventHandler(MouseEvent.ANY, this::forward);
+		popup.getScene().addEventHandler(ScrollEvent.ANY, this::forward);
+	}
+
+	/**
+	 * Overlays are not part of the application, they are skipped when looking
+	 * for its windows
+	 */
+	public static boolean isOverlay(final Window window) {
+		final Scene scene = window.getScene();
+		return scene != null && scene.getRoot() != null && !ConnectorUtils.isNormalNode(scene.getRoot());
+	}
+
+	public void setScene(final Scene value) {
+		if (scene != null) {
+			scene.xProperty().removeListener(positionListener);
+			scene.yProperty().removeListener(positionListener);
+			scene.widthProperty().removeListener(positionListener);
+			scene.heightProperty().removeListener(positionListener);
+			scene.windowProperty().removeListener(positionListener);
+		}
+		scene = value;
+		if (scene != null) {
+			scene.xProperty().addListener(positionListener);
+			scene.yProperty().addListener(positionListener);
+			scene.widthProperty().addListener(positionListener);
+			scene.heightProperty().addListener(positionListener);
+			scene.windowProperty().addListener(positionListener);
+		}
+		updatePosition();
+	}
+
+	public void add(final Node node) {
+		if (node.getParent() != content) {
+			content.getChildren().add(node);
+			node.visibleProperty().addListener(showingListener);
+			updateShowing();
+		}
+	}
+
+	public void remove(final Node node) {
+		if (content.getChildren().remove(node)) {
+			node.visibleProperty().removeListener(showingListener);
+			updateShowing();
+		}
+	}
+
+	public void dispose() {
+		for (final Node node : content.getChildren()) {
+			node.visibleProperty().removeListener(showingListener);
+		}
+		content.getChildren().clear();
+		setScene(null);
+	}
+
+	private void forward(final InputEvent event) {
+		final EventType<? extends Event> type = event.getEventType();
+		if (scene == null || event.isConsumed() || event instanceof MouseDragEvent || isCrossing(type)) {
+			return;
+		}
+		final double x = event instanceof MouseEvent mouse ? mouse.getSceneX() : ((ScrollEvent) event).getSceneX();
+		final double y = event instanceof MouseEvent mouse ? mouse.getSceneY() : ((ScrollEvent) event).getSceneY();
+		EventTarget target = event instanceof MouseEvent && type != MouseEvent.MOUSE_MOVED && type != MouseEvent.MOUSE_PRESSED ? pressed : null;
+		if (target == null) {
+			final Node picked = scene.getRoot() != null ? pick(scene.getRoot(), x, y) : null;
+			target = picked != null ? picked : scene;
+		}
+		if (type == MouseEvent.MOUSE_PRESSED) {
+			pressed = target;
+		} else if (type == MouseEvent.MOUSE_MOVED) {
+			pressed = null;
+			popup.getScene().setCursor(getCursor(target));
+		}
+		// The content is mouse transparent, the coordinates are the ones of the scene
+		Event.fireEvent(target, event.copyFor(target, target));
+	}
+
+	private static boolean isCrossing(final EventType<? extends Event> type) {
+		return type == MouseEvent.MOUSE_ENTERED_TARGET || type == MouseEvent.MOUSE_EXITED_TARGET || type.getSuperType() == MouseEvent.MOUSE_ENTERED_TARGET
+				|| type.getSuperType() == MouseEvent.MOUSE_EXITED_TARGET;
+	}
+
+	/**
+	 * Topmost node containing the point, like the scene would pick it
+	 */
+	private static Node pick(final Node node, final double x, final double y) {
+		if (!node.isVisible() || node.isMouseTransparent() || !ConnectorUtils.isNormalNode(node)) {
+			return null;
+		}
+		if (node instanceof Parent parent) {
+			final List<Node> children = parent.getChildrenUnmodifiable();
+			for (int i = children.size() - 1; i >= 0; i--) {
+				final Node picked = pick(children.get(i), x, y);
+				if (picked != null) {
+					return picked;
+				}
+			}
+		}
+		return node.contains(node.sceneToLocal(x, y)) ? node : null;
+	}
+
+	private Cursor getCursor(final EventTarget target) {
+		for (Node node = target instanceof Node ? (Node) target : null; node != null; node = node.getParent()) {
+			if (node.getCursor() != null) {
+				return node.getCursor();
+			}
+		}
+		return scene.getCursor();
+	}
+
+	private void updatePosition() {
+		final Window value = scene != null ? scene.getWindow() : null;
+		if (window != value) {
+			if (window != null) {
+				window.xProperty().removeListener(positionListener);
+				window.yProperty().removeListener(positionListener);
+				window.showingProperty().removeListener(showingListener);
+			}
+			popup.hide();
+			window = value;
+			if (window != null) {
+				window.xProperty().addListener(positionListener);
+				window.yProperty().addListener(positionListener);
+				window.showingProperty().addListener(showingListener);
+			}
+		}
+		if (scene != null) {
+			area.setWidth(scene.getWidth());
+			area.setHeight(scene.getHeight());
+		}
+		if (window != null) {
+			popup.setAnchorX(window.getX() + scene.getX());
+			popup.setAnchorY(window.getY() + scene.getY());
+		}
+		updateShowing();
+	}
+
+	private void updateShowing() {
+		boolean visible = false;
+		for (final Node node : content.getChildren()) {
+			visible |= node.isVisible();
+		}
+		if (visible && window != null && window.isShowing()) {
+			if (!popup.isShowing()) {
+				popup.show(window, window.getX() + scene.getX(), window.getY() + scene.getY());
+			}
+		} else if (popup.isShowing()) {
+			popup.hide();
+		}
+	}
+
+}
@@ -17,44 +17,67 @@
  */
 package org.fxconnector.gui;
 
-import javafx.scene.shape.LineTo;
-import javafx.scene.shape.MoveTo;
-import javafx.scene.shape.Path;
-import javafx.scene.shape.PathElement;
-
-import java.util.ArrayList;
-import java.util.List;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
 
 /**
- *
+ * Ruler drawn once into a canvas, only redrawn when its size, separation or
+ * color change, so showing it costs a single texture per frame.
  */
-public class RuleGrid extends Path {
-	final double width;
-	final double height;
+public class RuleGrid extends Canvas {
+
+	private double separation;
+	private Paint stroke = Color.BLACK;
 
 	public RuleGrid(final double separation, final double width, final double height) {
-		this.width = width;
-		this.height = height;
-		updateSeparation(separation);
+		super(width, height);
+		this.separation = separation;
+		setOpacity(0.3);
+		setMouseTransparent(true);
+		draw();
 	}
 
 	public void updateSeparation(final double separation) {
-		double x = separation;
-		double y = 0;
-		final List<PathElement> pElements = new ArrayList<>();
-		getElements().clear();
-		while (y < height) {
-			pElements.add(new MoveTo(0, y));
-			pElements.add(new LineTo(width, y));
-			y += separation;
+		this.separation = separation;
+		draw();
+	}
+
+	public void setStroke(final Paint stroke) {
+		this.stroke = stroke;
+		draw();
+	}
+
+	public void setSize(final double width, final double height) {
+		if (width != getWidth() || height != getHeight()) {
+			setWidth(width);
+			setHeight(height);
+			draw();
+		}
+	}
+
+	private void draw() {
+		final double width = getWidth();
+		final double height = getHeight();
+		final GraphicsContext gc = getGraphicsContext2D();
+		gc.clearRect(0, 0, width, height);
+		if (separation <= 0) {
+			return;
 		}
-		while (x < width) {
-			pElements.add(new MoveTo(x, 0));
-			pElements.add(new LineTo(x, height));
-			x += separation;
+		gc.setStroke(stroke);
+		gc.setLineWidth(1);
+		gc.beginPath();
+		// Half pixel offsets keep the lines one pixel wide
+		for (double y = 0; y < height; y += separation) {
+			gc.moveTo(0, Math.floor(y) + 0.5);
+			gc.lineTo(width, Math.floor(y) + 0.5);
 		}
-		getElements().addAll(pElements);
-		setOpacity(0.3);
+		for (double x = separation; x < width; x += separation) {
+			gc.moveTo(Math.floor(x) + 0.5, 0);
+			gc.lineTo(Math.floor(x) + 0.5, height);
+		}
+		gc.stroke();
 	}
 
 }
@@ -21,6 +21,7 @@ import javafx.application.Platform;
 import javafx.stage.PopupWindow;
 import javafx.stage.Window;
 import org.fxconnector.StageControllerImpl;
+import org.fxconnector.gui.OverlayWindow;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -32,7 +33,7 @@ public class SubWindowChecker extends WindowChecker {
 	final StageControllerImpl model;
 
 	public SubWindowChecker(final StageControllerImpl model) {
-		super(window -> window instanceof PopupWindow, model.getID().toString());
+		super(window -> window instanceof PopupWindow && !OverlayWindow.isOverlay(window), model.getID().toString());
 		this.model = model;
 	}
 
@@ -40,7 +40,7 @@ public abstract class WorkerThread extends Thread {
 		long sleepTime = 0;
 		while (running) {
 			try {
-				Thread.sleep(sleepTime);
+				pause(sleepTime);
 				work();
 			} catch (final Exception e) {
 				if (running) {
@@ -51,5 +51,9 @@ public abstract class WorkerThread extends Thread {
 		}
 	}
 
+	protected void pause(final long time) throws InterruptedException {
+		Thread.sleep(time);
+	}
+
 	protected abstract void work();
 }
@@ -40,7 +40,7 @@ public class SVDummyNode extends SVNodeImpl implements SVNode, Serializable {
 	private final List<SVNode> childrens = new ArrayList<>();
 	private transient Image icon;
 	private int nodeID;
-	private byte[] imageInByte;
+	byte[] imageInByte;
 	private NodeType nodeType;
 
 	public SVDummyNode() {
@@ -74,6 +74,11 @@ public class SVDummyNode extends SVNodeImpl implements SVNode, Serializable {
 		return childrens;
 	}
 
+	@Override
+	public int indexOfChild(final SVNode child) {
+		return childrens.indexOf(child);
+	}
+
 	@Override
 	public boolean equals(final SVNode node) {
 		/**
@@ -36,6 +36,12 @@ public interface SVNode {
 
 	List<SVNode> getChildren();
 
+	/**
+	 * Position of the child inside this node, it also works for nodes that
+	 * have been created without their children
+	 */
+	int indexOfChild(SVNode child);
+
 	boolean equals(SVNode node);
 
 	Node getImpl();
@@ -0,0 +1,186 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.node;
+
+import org.fxconnector.event.WireInput;
+import org.fxconnector.event.WireOutput;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact form of the nodes shipped by the remote agent. Children do not
+ * carry their parent, it is restored while reading, so only the top node of a
+ * branch writes its parent chain. Unchanged branches of a diff (see
+ * {@link SVNodeDiff}) only write their key.
+ */
+public final class SVNodeCodec {
+
+	private static final int NULL_NODE = 0;
+	private static final int REMOTE_NODE = 1;
+	private static final int DUMMY_NODE = 2;
+	private static final int OTHER_NODE = 3;
+	private static final int REFERENCE_NODE = 4;
+
+	private static final int VISIBLE = 1;
+	private static final int MOUSE_TRANSPARENT = 1 << 1;
+	private static final int FOCUSED = 1 << 2;
+	private static final int EXPANDED = 1 << 3;
+	private static final int HAS_CHILDREN = 1 << 4;
+	private static final int HAS_CHILDREN_IDS = 1 << 5;
+	private static final int HAS_PARENT = 1 << 6;
+
+	private SVNodeCodec() {
+	}
+
+	public static void write(final WireOutput out, final SVNode node) throws IOException {
+		if (node == null) {
+			out.writeVarInt(NULL_NODE);
+		} else if (node instanceof SVRemoteNodeAdapter) {
+			out.writeVarInt(REMOTE_NODE);
+			writeRemote(out, (SVRemoteNodeAdapter) node, true);
+		} else if (node instanceof SVDummyNode) {
+			out.writeVarInt(DUMMY_NODE);
+			writeDummy(out, (SVDummyNode) node);
+		} else if (node instanceof SVNodeReference) {
+			out.writeVarInt(REFERENCE_NODE);
+			writeReference(out, node);
+		} else {
+			out.writeVarInt(OTHER_NODE);
+			out.writeObject((Serializable) node);
+		}
+	}
+
+	public static SVNode read(final WireInput in) throws IOException {
+		final int kind = in.readVarInt();
+		return switch (kind) {
+			case NULL_NODE -> null;
+			case REMOTE_NODE -> readRemote(in, null);
+			case DUMMY_NODE -> readDummy(in);
+			case OTHER_NODE -> (SVNode) in.readObject();
+			case REFERENCE_NODE -> readReference(in);
+			default -> throw new IOException("Unknown node kind " + kind);
+		};
+	}
+
+	private static void writeRemote(final WireOutput out, final SVRemoteNodeAdapter node, final boolean withParent) {
+		int flags = 0;
+		if (node.isVisible()) flags |= VISIBLE;
+		if (node.isMouseTransparent()) flags |= MOUSE_TRANSPARENT;
+		if (node.isFocused()) flags |= FOCUSED;
+		if (node.isExpanded()) flags |= EXPANDED;
+		if (node.nodes != null) flags |= HAS_CHILDREN;
+		if (node.childrenIDs != null) flags |= HAS_CHILDREN_IDS;
+		if (withParent && node.parent != null) flags |= HAS_PARENT;
+
+		out.writeVarInt(node.getNodeId());
+		out.writeString(node.getId());
+		out.writeString(node.getNodeClass());
+		out.writeString(node.getNodeClassName());
+		out.writeVarInt(flags);
+		if (node.childrenIDs != null) {
+			out.writeVarInt(node.childrenIDs.length);
+			for (final int id : node.childrenIDs) {
+				out.writeVarInt(id);
+			}
+		}
+		if (node.nodes != null) {
+			out.writeVarInt(node.nodes.size());
+			for (final SVNode child : node.nodes) {
+				if (child instanceof SVNodeReference) {
+					out.writeVarInt(REFERENCE_NODE);
+					writeReference(out, child);
+				} else {
+					out.writeVarInt(REMOTE_NODE);
+					writeRemote(out, (SVRemoteNodeAdapter) child, false);
+				}
+			}
+		}
+		if ((flags & HAS_PARENT) != 0) {
+			writeRemote(out, node.parent, true);
+		}
+	}
+
+	private static void writeReference(final WireOutput out, final SVNode node) {
+		out.writeEnum(node.getNodeType());
+		out.writeInt(node.getNodeId());
+	}
+
+	private static SVNodeReference readReference(final WireInput in) throws IOException {
+		final NodeType nodeType = in.readEnum(NodeType.values());
+		return new SVNodeReference(in.readInt(), nodeType);
+	}
+
+	private static SVRemoteNodeAdapter readRemote(final WireInput in, final SVRemoteNodeAdapter parent) throws IOException {
+		final int nodeId = in.readVarInt();
+		final String id = in.readString();
+		final String nodeClass = in.readString();
+		final String nodeClassName = in.readString();
+		final int flags = in.readVarInt();
+		final SVRemoteNodeAdapter node = new SVRemoteNodeAdapter(nodeClass, nodeClassName, id, nodeId, (flags & VISIBLE) != 0, (flags & MOUSE_TRANSPARENT) != 0, (flags & FOCUSED) != 0);
+		node.setExpanded((flags & EXPANDED) != 0);
+		node.parent = parent;
+		if ((flags & HAS_CHILDREN_IDS) != 0) {
+			final int[] ids = new int[in.readVarInt()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = in.readVarInt();
+			}
+			node.childrenIDs = ids;
+		}
+		if ((flags & HAS_CHILDREN) != 0) {
+			final int count = in.readVarInt();
+			final List<SVNode> children = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				children.add(in.readVarInt() == REFERENCE_NODE ? readReference(in) : readRemote(in, node));
+			}
+			node.nodes = children;
+		}
+		if ((flags & HAS_PARENT) != 0) {
+			node.parent = readRemote(in, null);
+		}
+		return node;
+	}
+
+	private static void writeDummy(final WireOutput out, final SVDummyNode node) throws IOException {
+		out.writeInt(node.getNodeId());
+		out.writeString(node.getId());
+		out.writeString(node.getNodeClass());
+		out.writeEnum(node.getNodeType());
+		out.writeBytes(node.imageInByte);
+		out.writeVarInt(node.getChildren().size());
+		for (final SVNode child : node.getChildren()) {
+			write(out, child);
+		}
+	}
+
+	private static SVDummyNode readDummy(final WireInput in) throws IOException {
+		final int nodeId = in.readInt();
+		final String name = in.readString();
+		final String nodeClass = in.readString();
+		final SVDummyNode node = new SVDummyNode(name, nodeClass, nodeId, in.readEnum(NodeType.values()));
+		node.imageInByte = in.readBytes();
+		final int count = in.readVarInt();
+		for (int i = 0; i < count; i++) {
+			node.getChildren().add(read(in));
+		}
+		return node;
+	}
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Structural diff between two trees of the same stage, keyed on the node ID.
+ * The diff is the new tree where every branch that did not change is replaced
+ * by a reference to it, so removed nodes are simply missing, moved branches
+ * are references under their new parent, and inserted or modified nodes are
+ * shipped (modified ones without their unchanged children). An unchanged tree
+ * is a single reference.
+ */
+public final class SVNodeDiff {
+
+	private SVNodeDiff() {
+	}
+
+	/**
+	 * Returns the diff to go from previous to current, or current itself when
+	 * there is nothing to diff against
+	 */
+	public static SVNode diff(final SVNode previous, final SVNode current) {
+		if (previous == null || current == null || key(previous) != key(current)) {
+			return current;
+		}
+		final Map<Long, SVNode> index = new HashMap<>();
+		index(previous, index);
+		return diff(current, index);
+	}
+
+	/**
+	 * Rebuilds the tree described by a diff, reusing the unchanged branches of
+	 * previous. A full tree is returned as it is.
+	 */
+	public static SVNode apply(final SVNode diff, final SVNode previous) {
+		return new Resolver(previous).resolve(diff);
+	}
+
+	private static SVNode diff(final SVNode node, final Map<Long, SVNode> previous) {
+		final SVNode old = previous.get(key(node));
+		boolean changed = old == null || !sameAttributes(old, node) || !sameChildren(old.getChildren(), node.getChildren());
+		final List<SVNode> children = new ArrayList<>(node.getChildren().size());
+		for (final SVNode child : node.getChildren()) {
+			final SVNode diff = diff(child, previous);
+			changed |= !(diff instanceof SVNodeReference);
+			children.add(diff);
+		}
+		return changed ? copy(node, children) : new SVNodeReference(node.getNodeId(), node.getNodeType());
+	}
+
+	/**
+	 * Dummy icons are not compared, they only depend on the stage
+	 */
+	private static boolean sameAttributes(final SVNode old, final SVNode node) {
+		return old.getClass() == node.getClass() && Objects.equals(old.getId(), node.getId()) && Objects.equals(old.getNodeClass(), node.getNodeClass())
+				&& Objects.equals(old.getNodeClassName(), node.getNodeClassName()) && old.isVisible() == node.isVisible()
+				&& old.isMouseTransparent() == node.isMouseTransparent() && old.isFocused() == node.isFocused() && old.isExpanded() == node.isExpanded();
+	}
+
+	private static boolean sameChildren(final List<SVNode> old, final List<SVNode> children) {
+		if (old.size() != children.size()) {
+			return false;
+		}
+		for (int i = 0; i < old.size(); i++) {
+			if (key(old.get(i)) != key(children.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static SVNode copy(final SVNode node, final List<SVNode> children) {
+		if (node instanceof SVRemoteNodeAdapter) {
+			final SVRemoteNodeAdapter remote = (SVRemoteNodeAdapter) node;
+			final SVRemoteNodeAdapter copy = new SVRemoteNodeAdapter(remote.getNodeClass(), remote.getNodeClassName(), remote.getId(), remote.getNodeId(), remote.isVisible(),
+					remote.isMouseTransparent(), remote.isFocused());
+			copy.setExpanded(remote.isExpanded());
+			copy.childrenIDs = remote.childrenIDs;
+			copy.parent = remote.parent;
+			copy.nodes = remote.nodes != null ? children : null;
+			return copy;
+		}
+		if (node instanceof SVDummyNode) {
+			final SVDummyNode dummy = (SVDummyNode) node;
+			final SVDummyNode copy = new SVDummyNode(dummy.getId(), dummy.getNodeClass(), dummy.getNodeId(), dummy.getNodeType());
+			copy.imageInByte = dummy.imageInByte;
+			copy.getChildren().addAll(children);
+			return copy;
+		}
+		// Any other node goes whole
+		return node;
+	}
+
+	private static void index(final SVNode node, final Map<Long, SVNode> index) {
+		index.put(key(node), node);
+		for (final SVNode child : node.getChildren()) {
+			index(child, index);
+		}
+	}
+
+	/**
+	 * Dummy nodes share IDs with each other (the stage and its subwindows
+	 * root), so the type is part of the key
+	 */
+	private static long key(final SVNode node) {
+		return ((long) node.getNodeType().ordinal() << 32) | (node.getNodeId() & 0xFFFFFFFFL);
+	}
+
+	private static final class Resolver {
+
+		private final SVNode previous;
+		/**
+		 * Only built when a reference is found, local trees never have them
+		 */
+		private Map<Long, SVNode> index;
+
+		Resolver(final SVNode previous) {
+			this.previous = previous;
+		}
+
+		SVNode resolve(final SVNode node) {
+			if (node instanceof SVNodeReference) {
+				if (index == null) {
+					index = new HashMap<>();
+					if (previous != null) {
+						index(previous, index);
+					}
+				}
+				final SVNode resolved = index.get(key(node));
+				if (resolved == null) {
+					throw new IllegalStateException(node + " is not in the previous tree");
+				}
+				return resolved;
+			}
+			// Only shipped nodes may hold references
+			if (node instanceof SVRemoteNodeAdapter || node instanceof SVDummyNode) {
+				final List<SVNode> children = node.getChildren();
+				for (int i = 0; i < children.size(); i++) {
+					final SVNode child = children.get(i);
+					final SVNode resolved = resolve(child);
+					if (resolved != child) {
+						children.set(i, resolved);
+					}
+				}
+			}
+			return node;
+		}
+	}
+
+}
@@ -18,10 +18,8 @@
 package org.fxconnector.node;
 
 import javafx.scene.Node;
-import javafx.scene.Parent;
 import org.fxconnector.Configuration;
-
-import java.util.List;
+import org.fxconnector.NodeRegistry;
 
 public class SVNodeFactory {
 
@@ -29,43 +27,27 @@ public class SVNodeFactory {
 		// no-op
 	}
 
-	public static SVNode createNode(final Node node, final Configuration configuration, final boolean remote) {
+	/**
+	 * Creates the node with its parent chain only. Remote nodes do not include
+	 * their children so the cost does not depend on the size of the subtree
+	 */
+	public static SVNode createNode(final Node node, final NodeRegistry registry, final Configuration configuration, final boolean remote) {
 		if (remote) {
-			/**
-			 * This may sound strange but if the node has a parent we create an
-			 * SVNode for the parent a we get the correct node latter and if it
-			 * has not then we create a normal node
-			 */
-			final Node parent = node.getParent();
-			if (parent != null) {
-				final SVRemoteNodeAdapter svparent = new SVRemoteNodeAdapter(parent, configuration.isCollapseControls(), configuration.isCollapseContentControls());
-				final List<SVNode> childrens = svparent.getChildren();
-				for (SVNode children : childrens) {
-					if (children.equals(node)) {
-						return children;
-					}
-				}
-				final StringBuilder sb = new StringBuilder();
-				sb.append("Error while creating node:").append(node.getClass()).append(" id:").append(node.getId()).append('\n');
-
-				sb.append("NODE INFORMATION\n");
-				dumpNodeInfo(sb, node);
-				sb.append("PARENT INFORMATION\n");
-				dumpNodeInfo(sb, node.getParent());
-				throw new RuntimeException(sb.toString());
-
-			} else {
-				return new SVRemoteNodeAdapter(node, configuration.isCollapseControls(), configuration.isCollapseContentControls());
-			}
+			return new SVRemoteNodeAdapter(node, registry, configuration.isCollapseControls(), configuration.isCollapseContentControls(), false, null);
 		} else {
-			return new SVRealNodeAdapter(node, configuration.isCollapseControls(), configuration.isCollapseContentControls());
+			return new SVRealNodeAdapter(node, registry, configuration.isCollapseControls(), configuration.isCollapseContentControls());
 		}
 	}
 
-	private static void dumpNodeInfo(final StringBuilder sb, final Node node) {
-		sb.append("Node:").append(node).append(" Class:").append(node.getClass()).append(" Id:").append(node.getId()).append('\n');
-		if (node instanceof Parent) {
-			sb.append("Children:").append(((Parent) node).getChildrenUnmodifiable()).append('\n');
+	/**
+	 * Creates the node including all its children, only needed when the
+	 * receiver has to build the branch (ROOT_UPDATED and NODE_ADDED)
+	 */
+	public static SVNode createBranch(final Node node, final NodeRegistry registry, final Configuration configuration, final boolean remote) {
+		if (remote) {
+			return new SVRemoteNodeAdapter(node, registry, configuration.isCollapseControls(), configuration.isCollapseContentControls(), true, null);
+		} else {
+			return new SVRealNodeAdapter(node, registry, configuration.isCollapseControls(), configuration.isCollapseContentControls());
 		}
 	}
 
@@ -0,0 +1,121 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.node;
+
+import javafx.scene.Node;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stands for a node (and its whole branch) that did not change since the
+ * previous tree, see {@link SVNodeDiff}. It never reaches the tree view, it
+ * is replaced by the node it stands for when the diff is applied.
+ */
+final class SVNodeReference extends SVNodeImpl {
+
+	private static final long serialVersionUID = 2410787460934425911L;
+	private final int nodeId;
+	private final NodeType nodeType;
+
+	SVNodeReference(final int nodeId, final NodeType nodeType) {
+		this.nodeId = nodeId;
+		this.nodeType = nodeType;
+	}
+
+	@Override
+	public String getId() {
+		return null;
+	}
+
+	@Override
+	public String getExtendedId() {
+		return toString();
+	}
+
+	@Override
+	public SVNode getParent() {
+		return null;
+	}
+
+	@Override
+	public List<SVNode> getChildren() {
+		return Collections.emptyList();
+	}
+
+	@Override
+	public int indexOfChild(final SVNode child) {
+		return -1;
+	}
+
+	@Override
+	public boolean equals(final SVNode node) {
+		return node != null && node.getNodeId() == nodeId && node.getNodeType() == nodeType;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		return obj instanceof SVNode && equals((SVNode) obj);
+	}
+
+	@Override
+	public int hashCode() {
+		return nodeId;
+	}
+
+	@Override
+	public Node getImpl() {
+		return null;
+	}
+
+	@Override
+	public int getNodeId() {
+		return nodeId;
+	}
+
+	@Override
+	public boolean isVisible() {
+		return false;
+	}
+
+	@Override
+	public boolean isMouseTransparent() {
+		return false;
+	}
+
+	@Override
+	public boolean isFocused() {
+		return false;
+	}
+
+	@Override
+	public boolean isRealNode() {
+		return false;
+	}
+
+	@Override
+	public NodeType getNodeType() {
+		return nodeType;
+	}
+
+	@Override
+	public String toString() {
+		return "Unchanged " + nodeType + " " + nodeId;
+	}
+
+}
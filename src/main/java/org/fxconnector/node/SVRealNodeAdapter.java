@@ -20,6 +20,7 @@ package org.fxconnector.node;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import org.fxconnector.ConnectorUtils;
+import org.fxconnector.NodeRegistry;
 import org.fxconnector.helper.ChildrenGetter;
 
 import java.util.List;
@@ -32,16 +33,14 @@ class SVRealNodeAdapter extends SVNodeImpl implements SVNode {
 	 */
 	private static final long serialVersionUID = 4958550915826454155L;
 	private final Node node;
+	private final transient NodeRegistry registry;
 	private final boolean collapseControls;
 	private final boolean collapseContentControls;
 
-	public SVRealNodeAdapter(final Node node) {
-		this(node, true, true);
-	}
-
-	public SVRealNodeAdapter(final Node node, final boolean collapseControls, final boolean collapseContentControls) {
+	public SVRealNodeAdapter(final Node node, final NodeRegistry registry, final boolean collapseControls, final boolean collapseContentControls) {
 		super(ConnectorUtils.nodeClass(node), node.getClass().getName());
 		this.node = node;
+		this.registry = registry;
 		this.collapseControls = collapseControls;
 		this.collapseContentControls = collapseContentControls;
 		boolean mustBeExpanded = !(node instanceof Control) || !collapseControls;
@@ -62,7 +61,7 @@ class SVRealNodeAdapter extends SVNodeImpl implements SVNode {
 			/**
 			 * This should be improved
 			 */
-			return new SVRealNodeAdapter(node.getParent(), collapseControls, collapseContentControls);
+			return new SVRealNodeAdapter(node.getParent(), registry, collapseControls, collapseContentControls);
 		}
 		return null;
 	}
@@ -71,10 +70,15 @@ class SVRealNodeAdapter extends SVNodeImpl implements SVNode {
 	public List<SVNode> getChildren() {
 		return ChildrenGetter.getChildren(node)
 				.stream()
-				.map(childNode -> new SVRealNodeAdapter(childNode, collapseControls, collapseContentControls))
+				.map(childNode -> new SVRealNodeAdapter(childNode, registry, collapseControls, collapseContentControls))
 				.collect(Collectors.toList());
 	}
 
+	@Override
+	public int indexOfChild(final SVNode child) {
+		return registry.indexOfChild(node, child.getNodeId());
+	}
+
 	/**
 	 * This must be removed in the future
 	 */
@@ -106,7 +110,7 @@ class SVRealNodeAdapter extends SVNodeImpl implements SVNode {
 
 	@Override
 	public int getNodeId() {
-		return ConnectorUtils.getNodeUniqueID(node);
+		return registry.getID(node);
 	}
 
 	@Override
@@ -20,10 +20,14 @@ package org.fxconnector.node;
 import javafx.scene.Node;
 import javafx.scene.control.*;
 import org.fxconnector.ConnectorUtils;
+import org.fxconnector.NodeRegistry;
 import org.fxconnector.helper.ChildrenGetter;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 class SVRemoteNodeAdapter extends SVNodeImpl implements Serializable {
@@ -34,14 +38,32 @@ class SVRemoteNodeAdapter extends SVNodeImpl implements Serializable {
 	private final boolean visible;
 	private final boolean mouseTransparent;
 	private final boolean focused;
-	private List<SVNode> nodes;
-	private SVRemoteNodeAdapter parent;
+	List<SVNode> nodes;
+	/**
+	 * Order of the children when they are not shipped, only filled for the
+	 * parent of a branch so the receiver can place it
+	 */
+	int[] childrenIDs;
+	SVRemoteNodeAdapter parent;
+	/**
+	 * Position of each child by ID, built on the first lookup so inserting
+	 * in wide containers does not scan the children every time
+	 */
+	private transient Map<Integer, Integer> positions;
 
-	public SVRemoteNodeAdapter(final Node node, final boolean collapseControls, final boolean collapseContentControls) {
-		this(node, collapseControls, collapseContentControls, true, null);
+	/**
+	 * Used by {@link SVNodeCodec}, children and parent are set afterwards
+	 */
+	SVRemoteNodeAdapter(final String nodeClass, final String nodeClassName, final String id, final int nodeId, final boolean visible, final boolean mouseTransparent, final boolean focused) {
+		super(nodeClass, nodeClassName);
+		this.id = id;
+		this.nodeId = nodeId;
+		this.visible = visible;
+		this.mouseTransparent = mouseTransparent;
+		this.focused = focused;
 	}
 
-	public SVRemoteNodeAdapter(final Node node, final boolean collapseControls, final boolean collapseContentControls, final boolean fillChildren, final SVRemoteNodeAdapter parent) {
+	public SVRemoteNodeAdapter(final Node node, final NodeRegistry registry, final boolean collapseControls, final boolean collapseContentControls, final boolean fillChildren, final SVRemoteNodeAdapter parent) {
 		super(ConnectorUtils.nodeClass(node), node.getClass().getName());
 		boolean mustBeExpanded = !(node instanceof Control) || !collapseControls;
 		if (!mustBeExpanded && !collapseContentControls) {
@@ -49,10 +71,13 @@ class SVRemoteNodeAdapter extends SVNodeImpl implements Serializable {
 		}
 		setExpanded(mustBeExpanded);
 		this.id = node.getId();
-		this.nodeId = ConnectorUtils.getNodeUniqueID(node);
+		this.nodeId = registry.getID(node);
 		this.focused = node.isFocused();
 		if (node.getParent() != null && parent == null) {
-			this.parent = new SVRemoteNodeAdapter(node.getParent(), collapseControls, collapseContentControls, false, null);
+			this.parent = new SVRemoteNodeAdapter(node.getParent(), registry, collapseControls, collapseContentControls, false, null);
+			if (fillChildren) {
+				this.parent.childrenIDs = getChildrenIDs(node.getParent(), registry);
+			}
 		} else if (parent != null) {
 			this.parent = parent;
 		}
@@ -63,12 +88,13 @@ class SVRemoteNodeAdapter extends SVNodeImpl implements Serializable {
 		this.visible = node.isVisible() && (this.parent == null || this.parent.isVisible());
 
 		/**
-		 * TODO This should be improved
+		 * Children are only included when the whole branch is requested, the
+		 * parent chain never includes them
 		 */
 		if (fillChildren) {
 			nodes = ChildrenGetter.getChildren(node)
 					.stream()
-					.map(childNode -> new SVRemoteNodeAdapter(childNode, collapseControls, collapseContentControls, true, this))
+					.map(childNode -> new SVRemoteNodeAdapter(childNode, registry, collapseControls, collapseContentControls, true, this))
 					.collect(Collectors.toList());
 		}
 	}
@@ -90,7 +116,33 @@ class SVRemoteNodeAdapter extends SVNodeImpl implements Serializable {
 
 	@Override
 	public List<SVNode> getChildren() {
-		return nodes;
+		return nodes != null ? nodes : Collections.emptyList();
+	}
+
+	@Override
+	public int indexOfChild(final SVNode child) {
+		if (positions == null) {
+			positions = new HashMap<>();
+			if (nodes != null) {
+				for (int i = 0; i < nodes.size(); i++) {
+					positions.putIfAbsent(nodes.get(i).getNodeId(), i);
+				}
+			} else if (childrenIDs != null) {
+				for (int i = 0; i < childrenIDs.length; i++) {
+					positions.putIfAbsent(childrenIDs[i], i);
+				}
+			}
+		}
+		return positions.getOrDefault(child.getNodeId(), -1);
+	}
+
+	private static int[] getChildrenIDs(final Node node, final NodeRegistry registry) {
+		final List<Node> children = ChildrenGetter.getChildren(node);
+		final int[] ids = new int[children.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = registry.getID(children.get(i));
+		}
+		return ids;
 	}
 
 	@Override
@@ -108,8 +160,6 @@ class SVRemoteNodeAdapter extends SVNodeImpl implements Serializable {
 	public boolean equals(final Object node) {
 		if (node instanceof SVNode) {
 			return equals((SVNode) node);
-		} else if (node instanceof Node) {
-			return getNodeId() == ConnectorUtils.getNodeUniqueID((Node) node);
 		}
 		return false;
 	}
@@ -28,6 +28,12 @@ public interface FXConnector {
 
 	List<AppController> connect();
 
+	/**
+	 * Blocks until the running applications may have changed, at most for
+	 * the given time in ms
+	 */
+	void awaitChanges(long timeout) throws InterruptedException;
+
 	void close();
 
 }
@@ -32,6 +32,8 @@ interface RemoteApplication extends Remote {
 
 	void update(final StageID id) throws RemoteException;
 
+	void fullUpdate(final StageID id) throws RemoteException;
+
 	void setEventDispatcher(final StageID id, FXConnectorEventDispatcher dispatcher) throws RemoteException;
 
 	StageID[] getStageIDs() throws RemoteException;
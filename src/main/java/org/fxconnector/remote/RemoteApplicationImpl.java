@@ -20,61 +20,114 @@ package org.fxconnector.remote;
 import org.fxconnector.Configuration;
 import org.fxconnector.StageID;
 import org.fxconnector.details.DetailPaneType;
+import org.fxconnector.event.EventCodec;
 import org.fxconnector.event.FXConnectorEvent;
+import org.fxconnector.event.FXConnectorEvent.SVEventType;
 import org.fxconnector.event.FXConnectorEventDispatcher;
 import org.fxconnector.node.SVNode;
 import org.scenicview.utils.ExceptionLogger;
 import org.scenicview.utils.Logger;
 
+import java.io.IOException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
-class RemoteApplicationImpl extends UnicastRemoteObject implements RemoteApplication {
+class RemoteApplicationImpl implements RemoteApplication {
+
+	/**
+	 * Maximum number of events shipped on a single call
+	 */
+	static final int DEFAULT_BATCH_SIZE = 500;
+	/**
+	 * Maximum time in ms an event waits before being shipped, roughly synced
+	 * with pulse
+	 */
+	static final int DEFAULT_LATENCY = 60;
+	/**
+	 * Over this limit the traced events and mouse positions are dropped
+	 * instead of blocking the application. The other events are always
+	 * queued, losing one would leave the tree of Scenic View out of sync.
+	 */
+	static final int QUEUE_CAPACITY = 20000;
 
-	private static final long serialVersionUID = 1L;
 	final RemoteApplication application;
 	private RemoteConnector scenicView;
+	/**
+	 * Format agreed with Scenic View, see {@link RemoteConnector#getEventEncoding()}
+	 */
+	private int encoding;
 	private final int port;
+	private final int batchSize;
+	private final int latency;
 	RemoteDispatcher dispatcher;
+	/**
+	 * Only used with {@link SocketTransport}
+	 */
+	private SocketTransport.Connection connection;
 
-	RemoteApplicationImpl(final RemoteApplication application, final int port, final int serverPort) throws RemoteException {
+	RemoteApplicationImpl(final RemoteApplication application, final int port, final int serverPort, final int batchSize, final int latency, final boolean socketTransport, final String token) throws RemoteException {
 		this.application = application;
 		this.port = port;
+		this.batchSize = Math.max(1, batchSize);
+		this.latency = Math.max(1, latency);
+		if (socketTransport) {
+			SocketTransport.findScenicView(serverPort, token, this, channel -> {
+				this.connection = channel;
+				onScenicViewFound(channel.getPeer(RemoteConnector.class));
+			});
+			return;
+		}
 		try {
+			UnicastRemoteObject.exportObject(this, 0);
 			RMIUtils.bindApplication(this, port);
 		} catch (final Exception e) {
 			throw new RemoteException("Error starting agent", e);
 		}
 
-		RMIUtils.findScenicView(serverPort, scenicView -> {
-			this.scenicView = scenicView;
+		RMIUtils.findScenicView(serverPort, this::onScenicViewFound);
+	}
 
-			dispatcher = new RemoteDispatcher();
-			dispatcher.start();
+	private void onScenicViewFound(final RemoteConnector scenicView) {
+		this.scenicView = scenicView;
+		try {
+			encoding = scenicView.getEventEncoding() == EventCodec.VERSION ? EventCodec.VERSION : 0;
+		} catch (final RemoteException e) {
+			// Older Scenic View, keep serializing
+			encoding = 0;
+		}
 
-			Logger.print("RemoteConnector found:" + scenicView);
+		dispatcher = new RemoteDispatcher();
+		dispatcher.start();
 
-			try {
-				scenicView.onAgentStarted(port);
-			} catch (final RemoteException e) {
-				ExceptionLogger.submitException(e);
-			}
+		Logger.print("RemoteConnector found:" + scenicView);
 
-			try {
-				Thread.sleep(3000);
-			} catch (final InterruptedException e) {
-				ExceptionLogger.submitException(e);
-			}
-		});
+		try {
+			scenicView.onAgentStarted(port);
+		} catch (final RemoteException e) {
+			ExceptionLogger.submitException(e);
+		}
+
+		try {
+			Thread.sleep(3000);
+		} catch (final InterruptedException e) {
+			ExceptionLogger.submitException(e);
+		}
 	}
 
 	@Override
 	public void close() {
 		try {
-			RMIUtils.unbindApplication(port);
-			UnicastRemoteObject.unexportObject(this, true);
+			unbind();
+			if (connection == null) {
+				UnicastRemoteObject.unexportObject(this, true);
+			}
 			if (dispatcher != null) {
 				dispatcher.running = false;
 			}
@@ -83,6 +136,14 @@ class RemoteApplicationImpl extends UnicastRemoteObject implements RemoteApplica
 		}
 	}
 
+	private void unbind() throws RemoteException {
+		if (connection != null) {
+			connection.close();
+		} else {
+			RMIUtils.unbindApplication(port);
+		}
+	}
+
 	@Override
 	public void configurationUpdated(final StageID id, final Configuration configuration) throws RemoteException {
 		application.configurationUpdated(id, configuration);
@@ -93,6 +154,11 @@ class RemoteApplicationImpl extends UnicastRemoteObject implements RemoteApplica
 		application.update(id);
 	}
 
+	@Override
+	public void fullUpdate(final StageID id) throws RemoteException {
+		application.fullUpdate(id);
+	}
+
 	@Override
 	public void setEventDispatcher(final StageID id, final FXConnectorEventDispatcher dispatcher) throws RemoteException {
 		Logger.print("Remote application setEventDispatcher!!!");
@@ -147,8 +213,10 @@ class RemoteApplicationImpl extends UnicastRemoteObject implements RemoteApplica
 
 	// This is what pushes the events to Scenic View
 	class RemoteDispatcher extends Thread {
-		boolean running = true;
-		final List<FXConnectorEvent> events = new LinkedList<>();
+		volatile boolean running = true;
+		final Queue<FXConnectorEvent> events = new ConcurrentLinkedQueue<>();
+		final AtomicInteger size = new AtomicInteger();
+		final AtomicInteger dropped = new AtomicInteger();
 
 		{
 			// we don't want to keep the application running needlessly
@@ -158,28 +226,38 @@ class RemoteApplicationImpl extends UnicastRemoteObject implements RemoteApplica
 		@Override
 		public void run() {
 			while (running) {
-				try {
-					Thread.sleep(60); // roughly synced with pulse
-				} catch (final InterruptedException e) {
-					ExceptionLogger.submitException(e);
+				/**
+				 * Wait for the latency cap, or less if a full batch is
+				 * already waiting
+				 */
+				if (size.get() < batchSize) {
+					LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(latency));
+				}
+				final int lost = dropped.getAndSet(0);
+				if (lost > 0) {
+					Logger.print(lost + " traced events dropped, Scenic View is not consuming them fast enough");
 				}
 
-				FXConnectorEvent event = null;
-				while (!events.isEmpty()) {
+				while (running && scenicView != null && size.get() > 0) {
+					final List<FXConnectorEvent> batch = new ArrayList<>(Math.min(size.get(), batchSize));
+					FXConnectorEvent event;
+					while (batch.size() < batchSize && (event = events.poll()) != null) {
+						size.decrementAndGet();
+						batch.add(event);
+					}
+					if (batch.isEmpty()) {
+						// The event is still being offered
+						break;
+					}
 					try {
-						synchronized (events) {
-							event = events.remove(0);
-						}
-						if (scenicView != null) {
-							scenicView.dispatchEvent(event);
-						}
+						send(batch);
 					} catch (final RemoteException e) {
 						ExceptionLogger.submitException(e);
 						try {
-							close(event.getStageID());
+							close(batch.get(0).getStageID());
 							scenicView = null;
 							// UnicastRemoteObject.unexportObject(application, true);
-							RMIUtils.unbindApplication(port);
+							unbind();
 							running = false;
 						} catch (final Exception e1) {
 							ExceptionLogger.submitException(e1);
@@ -189,10 +267,37 @@ class RemoteApplicationImpl extends UnicastRemoteObject implements RemoteApplica
 			}
 		}
 
+		private void send(final List<FXConnectorEvent> batch) throws RemoteException {
+			if (encoding == EventCodec.VERSION) {
+				final byte[] data;
+				try {
+					data = EventCodec.encode(batch);
+				} catch (final IOException e) {
+					ExceptionLogger.submitException(e);
+					scenicView.dispatchEvents(batch);
+					return;
+				}
+				scenicView.dispatchEncodedEvents(data);
+			} else {
+				scenicView.dispatchEvents(batch);
+			}
+		}
+
 		public void addEvent(final FXConnectorEvent event) {
-			synchronized (events) {
-				events.add(event);
+			final int pending = size.incrementAndGet();
+			if (pending > QUEUE_CAPACITY && isDisposable(event)) {
+				size.decrementAndGet();
+				dropped.incrementAndGet();
+				return;
+			}
+			events.offer(event);
+			if (pending == batchSize) {
+				LockSupport.unpark(this);
 			}
 		}
+
+		private static boolean isDisposable(final FXConnectorEvent event) {
+			return event.getType() == SVEventType.EVENT_LOG || event.getType() == SVEventType.MOUSE_POSITION;
+		}
 	}
 }
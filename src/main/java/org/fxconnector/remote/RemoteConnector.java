@@ -21,12 +21,26 @@ import org.fxconnector.event.FXConnectorEvent;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 
 interface RemoteConnector extends Remote {
 
 	void dispatchEvent(FXConnectorEvent event) throws RemoteException;
 
+	void dispatchEvents(List<FXConnectorEvent> events) throws RemoteException;
+
+	/**
+	 * Events batch written by {@link org.fxconnector.event.EventCodec}
+	 */
+	void dispatchEncodedEvents(byte[] data) throws RemoteException;
+
+	/**
+	 * The {@link org.fxconnector.event.EventCodec} version understood by
+	 * Scenic View, 0 if the events must be serialized
+	 */
+	int getEventEncoding() throws RemoteException;
+
 	void onAgentStarted(int port) throws RemoteException;
 
 }
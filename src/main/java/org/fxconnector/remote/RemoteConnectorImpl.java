@@ -22,6 +22,7 @@ import com.sun.tools.attach.VirtualMachine;
 import com.sun.tools.attach.VirtualMachineDescriptor;
 import org.fxconnector.*;
 import org.fxconnector.details.DetailPaneType;
+import org.fxconnector.event.EventCodec;
 import org.fxconnector.event.FXConnectorEvent;
 import org.fxconnector.event.FXConnectorEventDispatcher;
 import org.fxconnector.node.SVNode;
@@ -36,27 +37,92 @@ import java.rmi.ConnectException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
-class RemoteConnectorImpl extends UnicastRemoteObject implements RemoteConnector, FXConnector {
+class RemoteConnectorImpl implements RemoteConnector, FXConnector {
 
-	private static final long serialVersionUID = -8263538629805832734L;
+	/**
+	 * Batching of the events pushed by the agents, can be tuned with
+	 * -Dscenicview.eventBatchSize and -Dscenicview.eventLatency (ms)
+	 */
+	private static final int EVENT_BATCH_SIZE = Integer.getInteger("scenicview.eventBatchSize", RemoteApplicationImpl.DEFAULT_BATCH_SIZE);
+	private static final int EVENT_LATENCY = Integer.getInteger("scenicview.eventLatency", RemoteApplicationImpl.DEFAULT_LATENCY);
+	/**
+	 * -Dscenicview.compactEvents=false makes the agents serialize the events
+	 */
+	private static final boolean COMPACT_EVENTS = Boolean.parseBoolean(System.getProperty("scenicview.compactEvents", "true"));
+	/**
+	 * -Dscenicview.transport=socket replaces RMI with {@link SocketTransport}
+	 */
+	private static final boolean SOCKET_TRANSPORT = SocketTransport.isRequested();
 
-	private final Map<Integer, String> vmInfo = new HashMap<>();
-	private final Map<String, RemoteApplication> applications = new HashMap<>();
+	/**
+	 * Attaching is slow, the VMs are checked in parallel and the ones that
+	 * have not answered after ATTACH_TIMEOUT ms are skipped until next update
+	 */
+	private static final int DISCOVERY_THREADS = Math.min(8, Runtime.getRuntime().availableProcessors() * 2);
+	private static final long ATTACH_TIMEOUT = Long.getLong("scenicview.attachTimeout", 3000);
+	/**
+	 * When the VMs are watched new ones are noticed right away, the stages of
+	 * the known ones are refreshed less often
+	 */
+	private static final long WATCHED_REFRESH = 2000;
+	/**
+	 * A VM younger than this may not have started JavaFX yet, so it is not
+	 * remembered as a non JavaFX one
+	 */
+	private static final long STARTUP_GRACE = 30000;
+	/**
+	 * A JavaFX application may load the toolkit late, the VMs found without
+	 * it are checked again after this time
+	 */
+	private static final long NON_JAVAFX_RECHECK = 60000;
+
+	/**
+	 * Agents being loaded, by the port given to them
+	 */
+	private final Map<Integer, AgentAttempt> vmInfo = new ConcurrentHashMap<>();
+	private final Map<String, RemoteApplication> applications = new ConcurrentHashMap<>();
 	private FXConnectorEventDispatcher dispatcher;
 	private final List<FXConnectorEvent> previous = new ArrayList<>();
-	private List<AppController> apps;
-	private final AtomicInteger count = new AtomicInteger();
+	/**
+	 * Whether each PID runs JavaFX, so the VMs are only attached once
+	 */
+	private final Map<String, Boolean> javaFXVMs = new ConcurrentHashMap<>();
+	private final Map<String, Long> nonJavaFXSince = new ConcurrentHashMap<>();
+	/**
+	 * Checks not answered yet, a blocked attach is not submitted again
+	 */
+	private final Map<String, Future<Boolean>> runningChecks = new ConcurrentHashMap<>();
+	private final ExecutorService discoveryExecutor = Executors.newFixedThreadPool(DISCOVERY_THREADS, runnable -> {
+		final Thread thread = new Thread(runnable, "ScenicView.VMDiscovery");
+		thread.setDaemon(true);
+		return thread;
+	});
 	private final int port;
-	private final List<String> attachError = new ArrayList<>();
+	/**
+	 * Given to the agents to open a channel, see {@link SocketTransport}
+	 */
+	private final String token = SocketTransport.newToken();
+	private final Set<String> attachError = ConcurrentHashMap.newKeySet();
+	private final VMWatcher vmWatcher = VMWatcher.create();
 
 	private File agentFile;
+	private SocketTransport.Server server;
 
 	RemoteConnectorImpl() throws RemoteException {
-		super();
 		this.port = getValidPort();
-		RMIUtils.bindScenicView(this, port);
+		if (SOCKET_TRANSPORT) {
+			try {
+				server = new SocketTransport.Server(port, token, this);
+			} catch (final IOException e) {
+				throw new RemoteException("Error starting Scenic View server", e);
+			}
+		} else {
+			UnicastRemoteObject.exportObject(this, 0);
+			RMIUtils.bindScenicView(this, port);
+		}
 	}
 
 	@Override
@@ -80,23 +146,73 @@ class RemoteConnectorImpl extends UnicastRemoteObject implements RemoteConnector
 		}
 	}
 
+	@Override
+	public void dispatchEvents(final List<FXConnectorEvent> events) {
+		if (dispatcher != null) {
+			javafx.application.Platform.runLater(() -> {
+				synchronized (previous) {
+					if (!previous.isEmpty()) {
+						for (FXConnectorEvent fxConnectorEvent : previous) {
+							dispatcher.dispatchEvent(fxConnectorEvent);
+						}
+						previous.clear();
+					}
+				}
+				for (FXConnectorEvent event : events) {
+					dispatcher.dispatchEvent(event);
+				}
+			});
+		} else {
+			synchronized (previous) {
+				previous.addAll(events);
+			}
+		}
+	}
+
+	@Override
+	public void dispatchEncodedEvents(final byte[] data) throws RemoteException {
+		final List<FXConnectorEvent> events;
+		try {
+			events = EventCodec.decode(data);
+		} catch (final IOException e) {
+			throw new RemoteException("Error decoding events", e);
+		}
+		dispatchEvents(events);
+	}
+
+	@Override
+	public int getEventEncoding() {
+		return COMPACT_EVENTS ? EventCodec.VERSION : 0;
+	}
+
 	@Override
 	public void onAgentStarted(final int port) {
 		Logger.print("Remote agent started on port:" + port);
-		RMIUtils.findApplication(port, application -> {
-			applications.put(vmInfo.get(port), application);
+		final AgentAttempt attempt = vmInfo.remove(port);
+		if (attempt == null) {
+			Logger.print("No agent was loaded on port:" + port);
+			return;
+		}
+		final Consumer<RemoteApplication> consumer = application -> {
+			applications.put(attempt.id, application);
 			try {
-				final int appsID = Integer.parseInt(vmInfo.get(port));
+				final int appsID = Integer.parseInt(attempt.id);
 				final StageID[] ids = application.getStageIDs();
-				addStages(appsID, ids, application);
+				addStages(appsID, ids, application, attempt.discovery);
 			} catch (final RemoteException e) {
 				ExceptionLogger.submitException(e);
 			}
-			count.decrementAndGet();
-		});
+			attempt.discovery.pending.countDown();
+		};
+		if (SOCKET_TRANSPORT) {
+			// The agent is calling through its own channel
+			consumer.accept(SocketTransport.Connection.current().getPeer(RemoteApplication.class));
+		} else {
+			RMIUtils.findApplication(port, consumer);
+		}
 	}
 
-	private void addStages(final int appsID, final StageID[] ids, final RemoteApplication application) {
+	private void addStages(final int appsID, final StageID[] ids, final RemoteApplication application, final Discovery discovery) {
 		final AppControllerImpl impl = new AppControllerImpl(appsID, Integer.toString(appsID)) {
 			@Override
 			public void close() {
@@ -134,6 +250,15 @@ class RemoteConnectorImpl extends UnicastRemoteObject implements RemoteConnector
 					}
 				}
 
+				@Override
+				public void fullUpdate() {
+					try {
+						application.fullUpdate(getID());
+					} catch (final RemoteException e) {
+						ExceptionLogger.submitException(e);
+					}
+				}
+
 				@Override
 				public void configurationUpdated(final Configuration configuration) {
 					try {
@@ -235,7 +360,7 @@ class RemoteConnectorImpl extends UnicastRemoteObject implements RemoteConnector
 		}
 
 		if (!impl.getStages().isEmpty()) {
-			apps.add(impl);
+			discovery.add(impl);
 		} else {
 			/**
 			 * Keep the agent connected
@@ -248,32 +373,26 @@ class RemoteConnectorImpl extends UnicastRemoteObject implements RemoteConnector
 	 */
 	@Override
 	public List<AppController> connect() {
-		apps = new ArrayList<>();
-		vmInfo.clear();
-		final List<VirtualMachine> machines = getRunningJavaFXApplications();
+		final List<String> machines = getRunningJavaFXApplications();
 		Logger.print(machines.size() + " JavaFX applications found");
-		count.set(machines.size());
+		final Discovery discovery = new Discovery(machines.size());
 		if (agentFile == null) {
 			agentFile = findAgent();
 		}
 		try {
-			final List<String> validIDs = new ArrayList<>();
-			for (final VirtualMachine machine : machines) {
-				validIDs.add(machine.id());
-				final VirtualMachine temp = machine;
-
+			for (final String id : machines) {
 				boolean connected = false;
-				if (applications.containsKey(temp.id())) {
-					final RemoteApplication application = applications.get(temp.id());
+				if (applications.containsKey(id)) {
+					final RemoteApplication application = applications.get(id);
 					try {
-						final int appsID = Integer.parseInt(temp.id());
+						final int appsID = Integer.parseInt(id);
 						final StageID[] ids = application.getStageIDs();
-						addStages(appsID, ids, application);
+						addStages(appsID, ids, application, discovery);
 						connected = true;
-						count.decrementAndGet();
+						discovery.pending.countDown();
 					} catch (final Exception e) {
 						ExceptionLogger.submitException(e, "Failure connecting to machine.");
-						applications.remove(temp.id());
+						applications.remove(id);
 					}
 				}
 				if (!connected) {
@@ -284,7 +403,7 @@ class RemoteConnectorImpl extends UnicastRemoteObject implements RemoteConnector
 
 						@Override
 						public void run() {
-							loadAgent(temp, agentFile);
+							loadAgent(id, agentFile, discovery);
 						}
 					};
 					agentThread.start();
@@ -293,35 +412,40 @@ class RemoteConnectorImpl extends UnicastRemoteObject implements RemoteConnector
 			/**
 			 * Remove obsolete VM
 			 */
-			for (Iterator<String> iterator = applications.keySet().iterator(); iterator.hasNext(); ) {
-				String ids = (String) iterator.next();
-				if (!validIDs.contains(ids)) {
-					iterator.remove();
-				}
-			}
+			applications.keySet().retainAll(machines);
 		} catch (final Exception e) {
 			ExceptionLogger.submitException(e);
 		}
-		final long initial = System.currentTimeMillis();
 		/**
 		 * MAC Seems to be slower using attach API
 		 */
 		final long timeout = Platform.getCurrent() == Platform.OSX ? 30000 : 10000;
-		while (count.get() != 0 && System.currentTimeMillis() - initial < timeout) {
-			try {
-				Thread.sleep(50);
-			} catch (final InterruptedException e) {
-				// no-op
-			}
+		try {
+			discovery.pending.await(timeout, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 		Logger.setEnabled(false);
-		return apps;
+		return discovery.finish();
+	}
+
+	@Override
+	public void awaitChanges(final long timeout) throws InterruptedException {
+		if (vmWatcher != null) {
+			vmWatcher.awaitChanges(Math.max(timeout, WATCHED_REFRESH));
+		} else {
+			Thread.sleep(timeout);
+		}
 	}
 
 	@Override
 	public void close() {
 		try {
-			RMIUtils.unbindScenicView(port);
+			if (server != null) {
+				server.close();
+			} else {
+				RMIUtils.unbindScenicView(port);
+			}
 		} catch (final Exception e) {
 			ExceptionLogger.submitException(e);
 		}
@@ -329,6 +453,12 @@ class RemoteConnectorImpl extends UnicastRemoteObject implements RemoteConnector
 
 	private int getValidPort() {
 		int port = RMIUtils.getClientPort();
+		if (SOCKET_TRANSPORT) {
+			while (SocketTransport.isInUse(port)) {
+				port = RMIUtils.getClientPort();
+			}
+			return port;
+		}
 		boolean valid = false;
 		do {
 			try {
@@ -345,72 +475,140 @@ class RemoteConnectorImpl extends UnicastRemoteObject implements RemoteConnector
 		return port;
 	}
 
-	private void loadAgent(final VirtualMachine machine, final File agentFile) {
+	private void loadAgent(final String id, final File agentFile, final Discovery discovery) {
+		int port = -1;
 		try {
+			final VirtualMachine machine = VirtualMachine.attach(id);
 			final long start = System.currentTimeMillis();
-			final int port = getValidPort();
+			port = getValidPort();
 			Logger.print("Loading agent for:" + machine + " ID:" + machine.id() + " on port:" + port + " took:" + (System.currentTimeMillis() - start) + "ms using agent defined in " + agentFile.getAbsolutePath());
-			vmInfo.put(port, machine.id());
-			machine.loadAgent(agentFile.getAbsolutePath(), port + ":" + this.port + ":" + machine.id() + ":" + Logger.isEnabled());
+			vmInfo.put(port, new AgentAttempt(machine.id(), discovery));
+			machine.loadAgent(agentFile.getAbsolutePath(), port + ":" + this.port + ":" + machine.id() + ":" + Logger.isEnabled() + ":" + EVENT_BATCH_SIZE + ":" + EVENT_LATENCY + ":" + (SOCKET_TRANSPORT ? SocketTransport.NAME + ":" + token : "rmi"));
 			machine.detach();
 		} catch (final Exception e) {
 			ExceptionLogger.submitException(e);
+			// Nothing will be reported by this VM
+			vmInfo.remove(port);
+			discovery.pending.countDown();
 		}
 	}
 
 	private static final String JAVAFX_SYSTEM_PROPERTIES_KEY = "javafx.version";
 
-	private List<VirtualMachine> getRunningJavaFXApplications() {
-		final List<VirtualMachineDescriptor> machines = VirtualMachine.list();
+	/**
+	 * Attaches to the unknown VMs in parallel, the VMs already checked are
+	 * answered from {@link #javaFXVMs} without attaching again
+	 */
+	private List<String> getRunningJavaFXApplications() {
+		final List<String> machines = getRunningVMs();
 		Logger.print("Number of running Java applications found: " + machines.size());
-		final List<VirtualMachine> javaFXMachines = new ArrayList<>();
 
-		final Map<String, Properties> vmsProperties = new HashMap<>(machines.size());
-
-		String currentPid = String.valueOf(ProcessHandle.current().pid());
-		for (final VirtualMachineDescriptor vmd : machines) {
-			if (vmd != null && currentPid.equals(vmd.id())) {
+		final String currentPid = String.valueOf(ProcessHandle.current().pid());
+		final Set<String> running = new HashSet<>(machines.size());
+		final Map<String, Future<Boolean>> checks = new LinkedHashMap<>();
+		final long now = System.currentTimeMillis();
+		for (final String id : machines) {
+			if (currentPid.equals(id)) {
 				continue;
 			}
+			running.add(id);
+			final Long since = nonJavaFXSince.get(id);
+			if (since != null && now - since > NON_JAVAFX_RECHECK) {
+				javaFXVMs.remove(id);
+				nonJavaFXSince.remove(id);
+			}
+			if (!javaFXVMs.containsKey(id)) {
+				checks.put(id, runningChecks.computeIfAbsent(id, key -> discoveryExecutor.submit(() -> isJavaFX(key))));
+			}
+		}
+		/**
+		 * Forget the VMs that are gone, their PID may be reused
+		 */
+		javaFXVMs.keySet().retainAll(running);
+		nonJavaFXSince.keySet().retainAll(running);
+		runningChecks.keySet().retainAll(running);
+
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ATTACH_TIMEOUT);
+		for (final Map.Entry<String, Future<Boolean>> check : checks.entrySet()) {
 			try {
-				final VirtualMachine virtualMachine = VirtualMachine.attach(vmd);
-				Logger.print("Obtaining properties for Java application with PID:" + virtualMachine.id());
-				final Properties sysPropertiesMap = virtualMachine.getSystemProperties();
-				vmsProperties.put(virtualMachine.id(), sysPropertiesMap);
-				if (sysPropertiesMap != null && sysPropertiesMap.containsKey(JAVAFX_SYSTEM_PROPERTIES_KEY)/* && !sysPropertiesMap.containsKey(SCENIC_VIEW_VM)*/) {
-					javaFXMachines.add(virtualMachine);
-				} else {
-					virtualMachine.detach();
+				final boolean javaFX = check.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				runningChecks.remove(check.getKey());
+				if (javaFX || !isStarting(check.getKey())) {
+					putVerdict(check.getKey(), javaFX);
 				}
-//                Logger.print("JVM:" + virtualMachine.id() + " detection finished");
-			} catch (final AttachNotSupportedException | InternalError | IOException ex) {
-				dumpAttachError(vmd, ex);
+			} catch (final TimeoutException e) {
+				// Still running, its answer is used on a next update
+				Logger.print("Timeout obtaining properties for Java application with PID:" + check.getKey());
+			} catch (final ExecutionException e) {
+				runningChecks.remove(check.getKey());
+				if (!isStarting(check.getKey())) {
+					putVerdict(check.getKey(), false);
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
 			}
-
 		}
-//        if (debug && javaFXMachines.isEmpty() && machines.size() > 1) {
-//            debug("No running JavaFX applications found.");
-//            for (final Iterator<String> iterator = vmsProperties.keySet().iterator(); iterator.hasNext();) {
-//                final String id = iterator.next();
-//
-//                final Properties properties = vmsProperties.get(id);
-//                if (!properties.containsKey(JAVAFX_SYSTEM_PROPERTIES_KEY)) {
-//                    debug("ID:" + id);
-//                    for (@SuppressWarnings("rawtypes") final Iterator iterator2 = properties.keySet().iterator(); iterator2.hasNext();) {
-//                        final String value = (String) iterator2.next();
-//                        debug("\t" + value + "=" + properties.getProperty(value));
-//                    }
-//                }
-//            }
-//        }
 
+		final List<String> javaFXMachines = new ArrayList<>();
+		for (final String id : running) {
+			if (Boolean.TRUE.equals(javaFXVMs.get(id))) {
+				javaFXMachines.add(id);
+			}
+		}
 		return javaFXMachines;
 	}
 
-	private void dumpAttachError(final VirtualMachineDescriptor vmd, final Throwable ex) {
-		if (!attachError.contains(vmd.id())) {
-			attachError.add(vmd.id());
-			System.err.println("Error while obtaining properties for JVM:" + vmd);
+	private void putVerdict(final String id, final boolean javaFX) {
+		javaFXVMs.put(id, javaFX);
+		if (!javaFX) {
+			nonJavaFXSince.put(id, System.currentTimeMillis());
+		}
+	}
+
+	private static boolean isStarting(final String id) {
+		try {
+			return ProcessHandle.of(Long.parseLong(id))
+					.flatMap(process -> process.info().startInstant())
+					.map(start -> System.currentTimeMillis() - start.toEpochMilli() < STARTUP_GRACE)
+					.orElse(false);
+		} catch (final NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private List<String> getRunningVMs() {
+		if (vmWatcher != null) {
+			return vmWatcher.getPIDs();
+		}
+		final List<String> ids = new ArrayList<>();
+		for (final VirtualMachineDescriptor vmd : VirtualMachine.list()) {
+			if (vmd != null) {
+				ids.add(vmd.id());
+			}
+		}
+		return ids;
+	}
+
+	private boolean isJavaFX(final String id) {
+		try {
+			final VirtualMachine virtualMachine = VirtualMachine.attach(id);
+			try {
+				Logger.print("Obtaining properties for Java application with PID:" + virtualMachine.id());
+				final Properties sysPropertiesMap = virtualMachine.getSystemProperties();
+				return sysPropertiesMap != null && sysPropertiesMap.containsKey(JAVAFX_SYSTEM_PROPERTIES_KEY);
+			} finally {
+				virtualMachine.detach();
+			}
+		} catch (final AttachNotSupportedException | InternalError | IOException ex) {
+			dumpAttachError(id, ex);
+			return false;
+		}
+	}
+
+	private void dumpAttachError(final String id, final Throwable ex) {
+		if (attachError.add(id)) {
+			System.err.println("Error while obtaining properties for JVM:" + id);
 			ex.printStackTrace();
 		}
 	}
@@ -492,4 +690,46 @@ class RemoteConnectorImpl extends UnicastRemoteObject implements RemoteConnector
 		return tempf;
 	}
 
+	/**
+	 * One call of connect. The agents it loads report to it even when they
+	 * answer after a later call started, the applications added once it
+	 * returned are found by the next call.
+	 */
+	private static final class Discovery {
+
+		final CountDownLatch pending;
+		private final List<AppController> apps = new ArrayList<>();
+		private boolean done;
+
+		Discovery(final int count) {
+			pending = new CountDownLatch(count);
+		}
+
+		void add(final AppController app) {
+			synchronized (apps) {
+				if (!done) {
+					apps.add(app);
+				}
+			}
+		}
+
+		List<AppController> finish() {
+			synchronized (apps) {
+				done = true;
+				return new ArrayList<>(apps);
+			}
+		}
+	}
+
+	private static final class AgentAttempt {
+
+		final String id;
+		final Discovery discovery;
+
+		AgentAttempt(final String id, final Discovery discovery) {
+			this.id = id;
+			this.discovery = discovery;
+		}
+	}
+
 }
@@ -57,6 +57,10 @@ public class RuntimeAttach {
 			final int serverPort = Integer.parseInt(args[1]);
 			final int appID = Integer.parseInt(args[2]);
 			debug = Boolean.parseBoolean(args[3]);
+			final int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : RemoteApplicationImpl.DEFAULT_BATCH_SIZE;
+			final int latency = args.length > 5 ? Integer.parseInt(args[5]) : RemoteApplicationImpl.DEFAULT_LATENCY;
+			final boolean socketTransport = args.length > 6 && SocketTransport.NAME.equals(args[6]);
+			final String token = args.length > 7 ? args[7] : "";
 			final AppControllerImpl acontroller = new AppControllerImpl(appID, args[2]);
 
 			ObservableList<Window> applicationWindows = FXCollections.observableArrayList();
@@ -70,6 +74,11 @@ public class RuntimeAttach {
 					Platform.runLater(() -> getSC(id).update());
 				}
 
+				@Override
+				public void fullUpdate(final StageID id) {
+					Platform.runLater(() -> getSC(id).fullUpdate());
+				}
+
 				@Override
 				public void configurationUpdated(final StageID id, final Configuration configuration) throws RemoteException {
 					Platform.runLater(() -> getSC(id).configurationUpdated(configuration));
@@ -200,7 +209,7 @@ public class RuntimeAttach {
 			};
 
 			debug = false;
-			RuntimeAttach.application = new RemoteApplicationImpl(application, port, serverPort);
+			RuntimeAttach.application = new RemoteApplicationImpl(application, port, serverPort, batchSize, latency, socketTransport, token);
 		} catch (final RemoteException e) {
 			ExceptionLogger.submitException(e);
 		}
@@ -0,0 +1,476 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.remote;
+
+import org.scenicview.utils.ExceptionLogger;
+import org.scenicview.utils.Logger;
+import org.scenicview.utils.Platform;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.rmi.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.rmi.RemoteException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Alternative to RMI between Scenic View and the agents, selected with
+ * -Dscenicview.transport=socket. Each agent opens a single channel to Scenic
+ * View (a Unix domain socket when the platform has them, loopback TCP
+ * otherwise) and both sides call each other through it. Calls are
+ * multiplexed by ID, only the batches of events pushed by the agents do not
+ * wait for a reply.
+ * <p>
+ * Anybody on the machine can open the channel, so each side first proves it
+ * knows the random token Scenic View passed in the agent arguments, and only
+ * the classes of the remote interfaces are deserialized.
+ */
+final class SocketTransport {
+
+	static final String NAME = "socket";
+
+	private static final byte CALL = 1;
+	private static final byte ONE_WAY = 2;
+	private static final byte REPLY = 3;
+	private static final byte FAILURE = 4;
+	private static final int MAX_FRAME = 64 * 1024 * 1024;
+	/**
+	 * Methods of RemoteConnector that do not wait for a reply, the others keep
+	 * the ordering and the errors of RMI
+	 */
+	private static final Set<String> ONE_WAY_METHODS = Set.of("dispatchEvents", "dispatchEncodedEvents");
+	private static final int TOKEN_BYTES = 16;
+	/**
+	 * The types found in the signatures of RemoteApplication and
+	 * RemoteConnector, with the exceptions they can fail with
+	 */
+	private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter("maxdepth=32;maxrefs=1000000;maxarray=" + MAX_FRAME + ";maxbytes=" + MAX_FRAME
+			+ ";org.fxconnector.**;java.lang.*;java.util.*;java.rmi.*;java.io.IOException;javafx.scene.input.KeyCode;!*");
+
+	private SocketTransport() {
+	}
+
+	static boolean isRequested() {
+		return NAME.equals(System.getProperty("scenicview.transport"));
+	}
+
+	/**
+	 * New token for the channels of a Scenic View, to be given to its agents
+	 */
+	static String newToken() {
+		final byte[] token = new byte[TOKEN_BYTES];
+		new SecureRandom().nextBytes(token);
+		return HexFormat.of().formatHex(token);
+	}
+
+	private static boolean isUnixSocket() {
+		return Platform.getCurrent() != Platform.WINDOWS;
+	}
+
+	private static SocketAddress getAddress(final int port) {
+		if (isUnixSocket()) {
+			return UnixDomainSocketAddress.of(Path.of(System.getProperty("java.io.tmpdir"), "scenicview-" + port + ".sock"));
+		}
+		return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+	}
+
+	static boolean isInUse(final int port) {
+		final SocketAddress address = getAddress(port);
+		if (address instanceof UnixDomainSocketAddress unix && !Files.exists(unix.getPath())) {
+			return false;
+		}
+		try {
+			SocketChannel.open(address).close();
+			return true;
+		} catch (final IOException e) {
+			if (address instanceof UnixDomainSocketAddress unix) {
+				// Left by a Scenic View that did not close, nobody listens on it
+				try {
+					Files.deleteIfExists(unix.getPath());
+				} catch (final IOException e1) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	static void findScenicView(final int port, final String token, final RemoteApplication application, final Consumer<Connection> consumer) {
+		new Thread("RemoteConnector.Finder") {
+			@Override
+			public void run() {
+				SocketChannel channel = null;
+				while (channel == null) {
+					try {
+						Logger.print("Finding Scenic View channel for agent...");
+						channel = SocketChannel.open(getAddress(port));
+					} catch (final IOException e) {
+						try {
+							sleep(50);
+						} catch (final InterruptedException e1) {
+							return;
+						}
+					}
+				}
+				consumer.accept(new Connection(channel, token, RemoteApplication.class, application));
+			}
+		}.start();
+	}
+
+	/**
+	 * Scenic View side, accepts the channels opened by the agents
+	 */
+	static final class Server implements Closeable {
+
+		private final ServerSocketChannel channel;
+		private final SocketAddress address;
+		private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+		Server(final int port, final String token, final RemoteConnector connector) throws IOException {
+			this.address = getAddress(port);
+			if (address instanceof UnixDomainSocketAddress unix) {
+				Files.deleteIfExists(unix.getPath());
+				channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			} else {
+				channel = ServerSocketChannel.open();
+			}
+			channel.bind(address);
+			final Thread acceptor = new Thread(() -> {
+				while (channel.isOpen()) {
+					try {
+						final SocketChannel accepted = channel.accept();
+						connections.removeIf(Connection::isClosed);
+						connections.add(new Connection(accepted, token, RemoteConnector.class, connector));
+					} catch (final IOException e) {
+						if (channel.isOpen()) {
+							ExceptionLogger.submitException(e);
+						}
+					}
+				}
+			}, "RemoteConnector.Acceptor");
+			acceptor.setDaemon(true);
+			acceptor.start();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+			for (final Connection connection : connections) {
+				connection.close();
+			}
+			if (address instanceof UnixDomainSocketAddress unix) {
+				Files.deleteIfExists(unix.getPath());
+			}
+		}
+	}
+
+	/**
+	 * One side of a channel, exports a local object and gives access to the
+	 * one exported on the other side
+	 */
+	static final class Connection implements Closeable {
+
+		/**
+		 * The connection whose call is being executed by the current thread
+		 */
+		private static final ThreadLocal<Connection> current = new ThreadLocal<>();
+
+		private final SocketChannel channel;
+		private final byte[] token;
+		private final Object local;
+		private final Method[] localMethods;
+		private final Map<Integer, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+		private final AtomicInteger lastCallID = new AtomicInteger();
+		/**
+		 * Incoming calls are executed in order, but not on the reader thread
+		 * so they can call back the other side
+		 */
+		private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "SocketTransport.Executor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		/**
+		 * Nothing is sent before the other side proved it knows the token
+		 */
+		private final CountDownLatch authenticated = new CountDownLatch(1);
+		private volatile boolean closed;
+
+		Connection(final SocketChannel channel, final String token, final Class<?> localType, final Object local) {
+			this.channel = channel;
+			this.token = token.getBytes(StandardCharsets.US_ASCII);
+			this.local = local;
+			this.localMethods = getMethods(localType);
+			final ByteBuffer sent = ByteBuffer.allocate(4 + this.token.length);
+			sent.putInt(this.token.length).put(this.token).flip();
+			try {
+				while (sent.hasRemaining()) {
+					channel.write(sent);
+				}
+			} catch (final IOException e) {
+				close();
+				return;
+			}
+			final Thread reader = new Thread(this::read, "SocketTransport.Reader");
+			reader.setDaemon(true);
+			reader.start();
+		}
+
+		static Connection current() {
+			return current.get();
+		}
+
+		boolean isClosed() {
+			return closed;
+		}
+
+		<T> T getPeer(final Class<T> type) {
+			final Method[] methods = getMethods(type);
+			final Map<Method, Integer> indexes = new HashMap<>();
+			for (int i = 0; i < methods.length; i++) {
+				indexes.put(methods[i], i);
+			}
+			return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+				if (method.getDeclaringClass() == Object.class) {
+					return switch (method.getName()) {
+						case "equals" -> proxy == args[0];
+						case "hashCode" -> System.identityHashCode(proxy);
+						default -> type.getSimpleName() + " over " + channel;
+					};
+				}
+				return call(indexes.get(method), type == RemoteConnector.class && ONE_WAY_METHODS.contains(method.getName()), args);
+			}));
+		}
+
+		private Object call(final int index, final boolean oneWay, final Object[] args) throws Throwable {
+			if (oneWay) {
+				send(ONE_WAY, 0, index, args);
+				return null;
+			}
+			final int callID = lastCallID.incrementAndGet();
+			final CompletableFuture<Object> reply = new CompletableFuture<>();
+			pending.put(callID, reply);
+			if (closed) {
+				pending.remove(callID);
+				throw new ConnectException("Connection closed");
+			}
+			send(CALL, callID, index, args);
+			try {
+				return reply.get();
+			} catch (final ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof RemoteException || cause instanceof RuntimeException || cause instanceof Error) {
+					throw cause;
+				}
+				throw new RemoteException("Remote call failed", cause);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RemoteException("Remote call interrupted", e);
+			} finally {
+				pending.remove(callID);
+			}
+		}
+
+		private void send(final byte kind, final int callID, final int index, final Object payload) throws RemoteException {
+			try {
+				authenticated.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RemoteException("Remote call interrupted", e);
+			}
+			if (closed) {
+				throw new ConnectException("Connection closed");
+			}
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeInt(0);
+				out.writeByte(kind);
+				out.writeInt(callID);
+				out.writeInt(index);
+				final ObjectOutputStream oos = new ObjectOutputStream(out);
+				oos.writeObject(payload);
+				oos.flush();
+			} catch (final IOException e) {
+				throw new RemoteException("Error writing call", e);
+			}
+			final ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+			frame.putInt(0, frame.remaining() - 4);
+			try {
+				synchronized (channel) {
+					while (frame.hasRemaining()) {
+						channel.write(frame);
+					}
+				}
+			} catch (final IOException e) {
+				close();
+				throw new ConnectException("Connection lost", e);
+			}
+		}
+
+		private void read() {
+			final ByteBuffer header = ByteBuffer.allocate(4);
+			try {
+				authenticate();
+				while (!closed) {
+					header.clear();
+					readFully(header);
+					final int length = header.getInt(0);
+					if (length < 9 || length > MAX_FRAME) {
+						throw new StreamCorruptedException("Invalid frame length " + length);
+					}
+					final ByteBuffer frame = ByteBuffer.allocate(length);
+					readFully(frame);
+					final DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame.array()));
+					final byte kind = in.readByte();
+					final int callID = in.readInt();
+					final int index = in.readInt();
+					final ObjectInputStream ois = new ObjectInputStream(in);
+					ois.setObjectInputFilter(FILTER);
+					final Object payload = ois.readObject();
+					switch (kind) {
+						case CALL, ONE_WAY -> executor.execute(() -> invoke(kind, callID, index, (Object[]) payload));
+						case REPLY -> complete(callID, payload, null);
+						case FAILURE -> complete(callID, null, (Throwable) payload);
+						default -> throw new StreamCorruptedException("Invalid frame kind " + kind);
+					}
+				}
+			} catch (final IOException | ClassNotFoundException e) {
+				if (!closed) {
+					Logger.print("Scenic View channel closed: " + e);
+				}
+			} finally {
+				close();
+			}
+		}
+
+		/**
+		 * Both sides send the token before anything else, nothing is
+		 * deserialized from a peer that does not know it
+		 */
+		private void authenticate() throws IOException {
+			final ByteBuffer length = ByteBuffer.allocate(4);
+			readFully(length);
+			if (length.getInt(0) != token.length) {
+				throw new StreamCorruptedException("Invalid token");
+			}
+			final ByteBuffer received = ByteBuffer.allocate(token.length);
+			readFully(received);
+			if (!MessageDigest.isEqual(token, received.array())) {
+				throw new StreamCorruptedException("Invalid token");
+			}
+			authenticated.countDown();
+		}
+
+		private void readFully(final ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					throw new EOFException();
+				}
+			}
+		}
+
+		private void complete(final int callID, final Object result, final Throwable failure) {
+			final CompletableFuture<Object> reply = pending.get(callID);
+			if (reply == null) {
+				return;
+			}
+			if (failure != null) {
+				reply.completeExceptionally(failure);
+			} else {
+				reply.complete(result);
+			}
+		}
+
+		private void invoke(final byte kind, final int callID, final int index, final Object[] args) {
+			Object result = null;
+			Throwable failure = null;
+			current.set(this);
+			try {
+				result = localMethods[index].invoke(local, args);
+			} catch (final InvocationTargetException e) {
+				failure = e.getCause();
+			} catch (final Exception e) {
+				failure = e;
+			} finally {
+				current.remove();
+			}
+			if (kind == ONE_WAY) {
+				if (failure != null) {
+					ExceptionLogger.submitException(failure);
+				}
+				return;
+			}
+			try {
+				if (failure == null) {
+					send(REPLY, callID, index, result);
+				} else {
+					// The cause may not be serializable
+					send(FAILURE, callID, index, failure instanceof RemoteException ? failure : new RemoteException(failure.toString()));
+				}
+			} catch (final RemoteException e) {
+				ExceptionLogger.submitException(e);
+			}
+		}
+
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			authenticated.countDown();
+			try {
+				channel.close();
+			} catch (final IOException e) {
+				// we don't care
+			}
+			executor.shutdown();
+			final ConnectException lost = new ConnectException("Connection closed");
+			for (final CompletableFuture<Object> reply : pending.values()) {
+				reply.completeExceptionally(lost);
+			}
+		}
+
+		/**
+		 * Same order on both sides so the methods can be sent as an index
+		 */
+		private static Method[] getMethods(final Class<?> type) {
+			final Method[] methods = type.getMethods();
+			Arrays.sort(methods, Comparator.comparing(Method::toGenericString));
+			return methods;
+		}
+	}
+
+}
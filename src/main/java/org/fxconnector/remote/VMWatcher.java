@@ -0,0 +1,177 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.remote;
+
+import org.scenicview.utils.ExceptionLogger;
+import org.scenicview.utils.Logger;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Every JVM of the user publishes a file named after its PID in the
+ * hsperfdata directory, watching it tells when VMs start or exit without
+ * polling. A killed VM leaves its file behind, so the exit of the process is
+ * watched too and liveness is checked against /proc. Only available on Linux.
+ */
+final class VMWatcher {
+
+	private static final Path PROC = Path.of("/proc");
+
+	private final Path directory;
+	private final WatchService watchService;
+	private final Set<String> pids = ConcurrentHashMap.newKeySet();
+	private final Object lock = new Object();
+	private boolean changed;
+
+	private VMWatcher(final Path directory) throws IOException {
+		this.directory = directory;
+		this.watchService = directory.getFileSystem().newWatchService();
+		directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE);
+		scan();
+		final Thread thread = new Thread(this::watch, "ScenicView.VMWatcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Returns null when the VMs cannot be watched on this platform
+	 */
+	static VMWatcher create() {
+		if (!System.getProperty("os.name").startsWith("Linux") || !Files.isDirectory(PROC)) {
+			return null;
+		}
+		// HotSpot always uses /tmp on Linux, whatever java.io.tmpdir says
+		final Path directory = Path.of("/tmp", "hsperfdata_" + System.getProperty("user.name"));
+		if (!Files.isDirectory(directory)) {
+			return null;
+		}
+		try {
+			return new VMWatcher(directory);
+		} catch (final IOException e) {
+			Logger.print("Cannot watch " + directory + ", polling for VMs instead: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * PIDs of the VMs alive right now
+	 */
+	List<String> getPIDs() {
+		final List<String> alive = new ArrayList<>(pids.size());
+		for (final String pid : pids) {
+			if (Files.isDirectory(PROC.resolve(pid))) {
+				alive.add(pid);
+			}
+		}
+		return alive;
+	}
+
+	/**
+	 * Waits until a VM starts or exits, or for the timeout
+	 */
+	void awaitChanges(final long timeout) throws InterruptedException {
+		synchronized (lock) {
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+			long remaining = timeout;
+			while (!changed && remaining > 0) {
+				lock.wait(remaining);
+				remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			}
+			changed = false;
+		}
+	}
+
+	private void watch() {
+		while (true) {
+			final WatchKey key;
+			try {
+				key = watchService.take();
+			} catch (final InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+			for (final WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW) {
+					scan();
+				} else {
+					final String name = event.context().toString();
+					if (isPID(name)) {
+						if (event.kind() == ENTRY_CREATE) {
+							add(name);
+						} else {
+							pids.remove(name);
+						}
+					}
+				}
+			}
+			changed();
+			if (!key.reset()) {
+				Logger.print(directory + " is not available anymore");
+				return;
+			}
+		}
+	}
+
+	private void scan() {
+		try (Stream<Path> files = Files.list(directory)) {
+			final Set<String> current = ConcurrentHashMap.newKeySet();
+			files.map(file -> file.getFileName().toString()).filter(VMWatcher::isPID).forEach(current::add);
+			pids.retainAll(current);
+			current.forEach(this::add);
+		} catch (final IOException e) {
+			ExceptionLogger.submitException(e);
+		}
+	}
+
+	private void add(final String pid) {
+		if (pids.add(pid) && ProcessHandle.current().pid() != Long.parseLong(pid)) {
+			ProcessHandle.of(Long.parseLong(pid)).ifPresent(process -> process.onExit().thenRun(() -> {
+				pids.remove(pid);
+				changed();
+			}));
+		}
+	}
+
+	private void changed() {
+		synchronized (lock) {
+			changed = true;
+			lock.notifyAll();
+		}
+	}
+
+	private static boolean isPID(final String name) {
+		if (name.isEmpty()) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (!Character.isDigit(name.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -73,6 +73,15 @@ public class RemoteVMsUpdateStrategy extends WorkerThread implements UpdateStrat
 		start();
 	}
 
+	@Override
+	protected void pause(final long time) throws InterruptedException {
+		if (connector != null) {
+			connector.awaitChanges(time);
+		} else {
+			super.pause(time);
+		}
+	}
+
 	@Override
 	protected void work() {
 		boolean modifications = false;
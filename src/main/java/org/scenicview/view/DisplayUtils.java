@@ -22,8 +22,8 @@ import org.fxconnector.node.SVNode;
 
 import java.net.URL;
 import java.text.DecimalFormat;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,7 +33,12 @@ import java.util.logging.Logger;
 public class DisplayUtils {
 
 	private static final String CUSTOM_NODE_IMAGE = DisplayUtils.getNodeIcon("CustomNode").toString();
-	private static final Map<String, Image> loadedImages = new HashMap<>();
+	/**
+	 * Node icons by node class, loaded once at the size they are shown
+	 */
+	private static final Map<String, Image> loadedImages = new ConcurrentHashMap<>();
+
+	public static final int ICON_SIZE = 16;
 
 	public static final DecimalFormat DFMT = new DecimalFormat("0.0#");
 	private static Level wLevel;
@@ -54,19 +59,11 @@ public class DisplayUtils {
 	public static Image getIcon(final SVNode svNode) {
 		if (svNode.getIcon() != null)
 			return svNode.getIcon();
-		Image image = loadedImages.get(svNode.getNodeClass());
-		if (image == null) {
-			final URL resource = DisplayUtils.getNodeIcon(svNode.getNodeClass());
-			String url;
-			if (resource != null) {
-				url = resource.toString();
-			} else {
-				url = CUSTOM_NODE_IMAGE;
-			}
-			image = new Image(url);
-			loadedImages.put(svNode.getNodeClass(), image);
-		}
-		return image;
+		return loadedImages.computeIfAbsent(svNode.getNodeClass(), nodeClass -> {
+			final URL resource = DisplayUtils.getNodeIcon(nodeClass);
+			final String url = resource != null ? resource.toString() : CUSTOM_NODE_IMAGE;
+			return new Image(url, ICON_SIZE, ICON_SIZE, true, true);
+		});
 	}
 
 	public static void showWebView(final boolean show) {
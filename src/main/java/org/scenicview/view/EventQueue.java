@@ -0,0 +1,169 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.scenicview.view;
+
+import org.fxconnector.StageID;
+import org.fxconnector.event.DetailsEvent;
+import org.fxconnector.event.FXConnectorEvent;
+import org.fxconnector.event.FXConnectorEvent.SVEventType;
+import org.fxconnector.event.NodeAddRemoveEvent;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Events waiting to be shown by Scenic View. Events that only carry the last
+ * value (mouse position, counts, window details, detail updates) replace the
+ * pending one, and a node added and removed before being shown is dropped.
+ * <p>
+ * Thread safe, events may be offered from any thread.
+ */
+final class EventQueue {
+
+	private final ArrayDeque<Slot> slots = new ArrayDeque<>();
+	/**
+	 * The pending slot of each coalesced event, and the pending add or remove
+	 * of each node
+	 */
+	private final Map<Key, Slot> pending = new HashMap<>();
+	private int size;
+
+	synchronized void offer(final FXConnectorEvent event) {
+		final Key key = getKey(event);
+		if (key != null) {
+			final Slot previous = pending.remove(key);
+			if (previous != null) {
+				final SVEventType previousType = previous.event.getType();
+				previous.event = null;
+				size--;
+				if (key.type == SVEventType.NODE_ADDED && previousType != event.getType()) {
+					// Added and removed (or the other way), nothing to show
+					return;
+				}
+			}
+		}
+		final Slot slot = new Slot(event, key, System.nanoTime());
+		slots.add(slot);
+		size++;
+		if (key != null) {
+			pending.put(key, slot);
+		}
+	}
+
+	synchronized FXConnectorEvent poll() {
+		Slot slot;
+		while ((slot = slots.poll()) != null) {
+			if (slot.event != null) {
+				size--;
+				if (slot.key != null && pending.get(slot.key) == slot) {
+					pending.remove(slot.key);
+				}
+				return slot.event;
+			}
+		}
+		return null;
+	}
+
+	synchronized int size() {
+		return size;
+	}
+
+	synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Time in ns the oldest pending event has been waiting
+	 */
+	synchronized long getLag() {
+		Slot slot;
+		while ((slot = slots.peek()) != null && slot.event == null) {
+			slots.poll();
+		}
+		return slot != null ? System.nanoTime() - slot.offered : 0;
+	}
+
+	private static Key getKey(final FXConnectorEvent event) {
+		final StageID id = event.getStageID();
+		return switch (event.getType()) {
+			case MOUSE_POSITION, NODE_COUNT, SCENE_DETAILS, WINDOW_DETAILS -> new Key(event.getType(), id, 0, 0);
+			case DETAIL_UPDATED -> {
+				final DetailsEvent details = (DetailsEvent) event;
+				yield new Key(SVEventType.DETAIL_UPDATED, id, details.getPaneType().ordinal(), details.getDetails().get(0).getDetailID());
+			}
+			// Added and removed share the key so they can cancel each other
+			case NODE_ADDED, NODE_REMOVED -> new Key(SVEventType.NODE_ADDED, id, 0, ((NodeAddRemoveEvent) event).getNode().getNodeId());
+			default -> null;
+		};
+	}
+
+	private static final class Slot {
+
+		/**
+		 * Null once replaced or cancelled
+		 */
+		FXConnectorEvent event;
+		final Key key;
+		final long offered;
+
+		Slot(final FXConnectorEvent event, final Key key, final long offered) {
+			this.event = event;
+			this.key = key;
+			this.offered = offered;
+		}
+	}
+
+	private static final class Key {
+
+		final SVEventType type;
+		final int appID;
+		final int stageID;
+		final int group;
+		final int id;
+
+		Key(final SVEventType type, final StageID stageID, final int group, final int id) {
+			this.type = type;
+			this.appID = stageID.getAppID();
+			this.stageID = stageID.getStageID();
+			this.group = group;
+			this.id = id;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = type.hashCode();
+			result = 31 * result + appID;
+			result = 31 * result + stageID;
+			result = 31 * result + group;
+			result = 31 * result + id;
+			return result;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			final Key other = (Key) obj;
+			return type == other.type && appID == other.appID && stageID == other.stageID && group == other.group && id == other.id;
+		}
+	}
+
+}
@@ -17,16 +17,30 @@
  */
 package org.scenicview.view;
 
+import org.fxconnector.StageID;
 import org.fxconnector.node.SVNode;
 
 interface NodeFilter {
 	/**
 	 * Checks if the node is accepted for this filter
 	 *
+	 * @param stageID
 	 * @param node
 	 * @return
 	 */
-	boolean accept(SVNode node);
+	boolean accept(StageID stageID, SVNode node);
+
+	/**
+	 * Checks if a descendant of the node could be accepted, so the branch of
+	 * a rejected node can be skipped
+	 *
+	 * @param stageID
+	 * @param node
+	 * @return
+	 */
+	default boolean mayAcceptDescendants(final StageID stageID, final SVNode node) {
+		return true;
+	}
 
 	/**
 	 * Checks if the children could be accepted even though this node is
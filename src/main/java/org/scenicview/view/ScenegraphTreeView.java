@@ -17,6 +17,7 @@
  */
 package org.scenicview.view;
 
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.control.*;
@@ -28,9 +29,11 @@ import javafx.stage.WindowEvent;
 import org.fxconnector.AppController;
 import org.fxconnector.ConnectorUtils;
 import org.fxconnector.StageController;
+import org.fxconnector.StageID;
 import org.fxconnector.node.NodeType;
 import org.fxconnector.node.SVDummyNode;
 import org.fxconnector.node.SVNode;
+import org.fxconnector.node.SVNodeDiff;
 import org.scenicview.utils.Logger;
 import org.scenicview.view.tabs.DetailsTab;
 import org.scenicview.view.tabs.EventLogTab;
@@ -40,11 +43,26 @@ import java.util.*;
 public class ScenegraphTreeView extends TreeView<SVNode> {
 
 	private TreeItem<SVNode> previouslySelectedItem;
-	private final Map<SVNode, TreeItem<SVNode>> treeViewData = new HashMap<>();
+	/**
+	 * Items of each stage by node ID
+	 */
+	private final Map<StageID, TreeIndex> treeIndexes = new HashMap<>();
 	private final List<NodeFilter> activeNodeFilters;
 	//    private final ConnectorController container;
 	private final ScenicViewGui scenicView;
 	private final Map<SVNode, StageController> stages = new HashMap<>();
+	/**
+	 * Last tree of each stage, remote stages send their updates as a diff
+	 * against it
+	 */
+	private final Map<StageID, SVNode> stageModels = new HashMap<>();
+	private final Map<StageID, StageController> stageControllers = new HashMap<>();
+	/**
+	 * Stages whose tree items were patched by added or removed nodes since
+	 * their last model, they cannot be filtered again locally
+	 */
+	private final Set<StageID> staleModels = new HashSet<>();
+	private final Map<TreeItem<SVNode>, StageCollapsingListener> stageListeners = new HashMap<>();
 
 	TreeItem<SVNode> apps;
 
@@ -71,12 +89,28 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 		});
 
 		setCellFactory(node -> new TreeCell<>() {
+
+			/**
+			 * The items have no graphic, each cell shows the shared icon of
+			 * its node
+			 */
+			private final ImageView icon = new ImageView();
+
+			{
+				icon.setFitHeight(DisplayUtils.ICON_SIZE);
+				icon.setFitWidth(DisplayUtils.ICON_SIZE);
+			}
+
 			@Override
 			public void updateItem(final SVNode item, final boolean empty) {
 				super.updateItem(item, empty);
 
-				TreeItem<SVNode> treeItem = getTreeItem();
-				setGraphic(treeItem == null ? null : treeItem.getGraphic());
+				if (item != null && !empty) {
+					icon.setImage(DisplayUtils.getIcon(item));
+					setGraphic(icon);
+				} else {
+					setGraphic(null);
+				}
 
 				setText(item == null ? null : item.toString());
 				setOpacity(1);
@@ -212,9 +246,10 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 		}
 	}
 
-	public void nodeSelected(final SVNode nodeData) {
-		if (nodeData != null && treeViewData.containsKey(nodeData)) {
-			final TreeItem<SVNode> item = treeViewData.get(nodeData);
+	public void nodeSelected(final StageID stageID, final SVNode nodeData) {
+		final TreeItem<SVNode> item = materialize(stageID, nodeData);
+		if (item != null) {
+			expandPath(item);
 			getSelectionModel().select(item);
 			scrollTo(getSelectionModel().getSelectedIndex());
 		}
@@ -245,7 +280,7 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 		 */
 		if (app == null) {
 			final SVNode dummy = new SVDummyNode("VM - " + controller.getAppController(), "Java", controller.getAppController().getID(), NodeType.VM);
-			app = new TreeItem<>(dummy, new ImageView(DisplayUtils.getIcon(dummy)));
+			app = new TreeItem<>(dummy);
 			app.setExpanded(false);
 			this.apps.getChildren().add(app);
 		}
@@ -305,7 +340,7 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 	 */
 	void patchRoot(final TreeItem<SVNode> realNode) {
 		this.patchedNode = realNode;
-		final TreeItem<SVNode> real = new TreeItem<>(realNode.getValue(), realNode.getGraphic());
+		final TreeItem<SVNode> real = new TreeItem<>(realNode.getValue());
 		real.getChildren().addAll(realNode.getChildren());
 		setRoot(real);
 	}
@@ -352,10 +387,18 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 				break;
 			}
 		}
+		stageModels.keySet().removeIf(id -> id.getAppID() == appController.getID());
+		stageControllers.keySet().removeIf(id -> id.getAppID() == appController.getID());
+		staleModels.removeIf(id -> id.getAppID() == appController.getID());
+		treeIndexes.keySet().removeIf(id -> id.getAppID() == appController.getID());
 		updateRoot();
 	}
 
 	void removeStage(final StageController stageController) {
+		stageModels.remove(stageController.getID());
+		stageControllers.remove(stageController.getID());
+		staleModels.remove(stageController.getID());
+		treeIndexes.remove(stageController.getID());
 		for (final TreeItem<SVNode> type : apps.getChildren()) {
 			if (type.getValue().getNodeId() == stageController.getID().getAppID()) {
 				for (final Iterator<TreeItem<SVNode>> iterator2 = type.getChildren().iterator(); iterator2.hasNext(); ) {
@@ -376,21 +419,76 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 
 	}
 
-	void updateStageModel(final StageController controller, final SVNode value, final boolean showNodesIdInTree, final boolean showFilteredNodesInTree) {
-		// treeViewData.clear();
+	void updateStageModel(final StageController controller, final SVNode update, final boolean showNodesIdInTree, final boolean showFilteredNodesInTree) {
+		final SVNode value;
+		final SVNode previous = stageModels.get(controller.getID());
+		try {
+			value = SVNodeDiff.apply(update, previous);
+		} catch (final IllegalStateException e) {
+			// An update was lost, the next diff would not apply either
+			Logger.print("Cannot apply the update of " + controller.getID() + ", asking for the whole tree: " + e.getMessage());
+			controller.fullUpdate();
+			return;
+		}
+		if (value != previous) {
+			scenicView.stageModelUpdated(controller.getID(), value);
+		}
+		stageModels.put(controller.getID(), value);
+		stageControllers.put(controller.getID(), controller);
+		staleModels.remove(controller.getID());
+		reconcile(controller, value, showNodesIdInTree, showFilteredNodesInTree);
+	}
+
+	/**
+	 * Applies the filters again. Stages whose tree items match their model
+	 * are rebuilt locally, the others are requested again.
+	 */
+	void refilter(final boolean showNodesIdInTree, final boolean showFilteredNodesInTree) {
+		for (final Map.Entry<StageID, StageController> entry : new ArrayList<>(stageControllers.entrySet())) {
+			if (staleModels.contains(entry.getKey())) {
+				entry.getValue().update();
+			} else {
+				reconcile(entry.getValue(), stageModels.get(entry.getKey()), showNodesIdInTree, showFilteredNodesInTree);
+			}
+		}
+	}
+
+	private void reconcile(final StageController controller, final SVNode value, final boolean showNodesIdInTree, final boolean showFilteredNodesInTree) {
 		stages.put(value, controller);
 		previouslySelectedItem = null;
+		final TreeItem<SVNode> selected = getSelectionModel().getSelectedItem();
+		/**
+		 * The items of the previous tree are reused for the same nodes, so
+		 * only the changed branches are rebuilt and the expansion is kept.
+		 * The new model has the removed nodes already.
+		 */
+		final TreeIndex reusable = treeIndexes.put(controller.getID(), new TreeIndex());
+		final TreeItem<SVNode> previousRoot = reusable != null ? reusable.get(value) : null;
 		blockSelection = true;
-		removeForNode(getTreeItem(value));
-		blockSelection = false;
-		final TreeItem<SVNode> root = createTreeItem(value, showNodesIdInTree, showFilteredNodesInTree);
+		final TreeItem<SVNode> root = createTreeItem(controller.getID(), value, showNodesIdInTree, showFilteredNodesInTree, reusable);
+		if (previousRoot != null && previousRoot != root) {
+			stageListeners.remove(previousRoot);
+		}
 		final StageCollapsingListener listener = new StageCollapsingListener(root, controller);
 		root.addEventHandler(TreeItem.branchCollapsedEvent(), listener);
 		root.addEventHandler(TreeItem.branchExpandedEvent(), listener);
-		// this.listeners.put(controller, listener);
+		final StageCollapsingListener previousListener = stageListeners.put(root, listener);
+		if (previousListener != null) {
+			root.removeEventHandler(TreeItem.branchCollapsedEvent(), previousListener);
+			root.removeEventHandler(TreeItem.branchExpandedEvent(), previousListener);
+		}
 		placeStageRoot(controller, root);
+		if (selected != null && getSelectionModel().getSelectedItem() != selected && isInTree(selected)) {
+			getSelectionModel().select(selected);
+		}
+		blockSelection = false;
+		if (previouslySelectedItem == null && scenicView.isActive(controller.getID())) {
+			// It may be inside a branch whose items were not created yet
+			previouslySelectedItem = materialize(controller.getID(), scenicView.getSelectedNode());
+		}
 
 		if (previouslySelectedItem != null) {
+			expandPath(previouslySelectedItem);
 			/**
 			 * TODO Why this is not working??
 			 */
@@ -404,24 +502,26 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 		}
 	}
 
-	void removeNode(final SVNode node) {
+	void removeNode(final StageID stageID, final SVNode node) {
+		staleModels.add(stageID);
 		blockSelection = true;
-		doRemoveNode(node);
+		doRemoveNode(stageID, node);
 		blockSelection = false;
 	}
 
-	void doRemoveNode(final SVNode node) {
+	void doRemoveNode(final StageID stageID, final SVNode node) {
 		try {
 			if (ConnectorUtils.isNormalNode(node)) {
 				TreeItem<SVNode> selected = null;
-				if (scenicView.getSelectedNode() == node) {
+				if (scenicView.isSelected(stageID, node)) {
 					getSelectionModel().clearSelection();
 					setSelectedNode(null);
 				} else {
 					// Ugly workaround
 					selected = getSelectionModel().getSelectedItem();
 				}
-				final TreeItem<SVNode> treeItem = getTreeItem(node);
+				final TreeIndex index = getIndex(stageID);
+				final TreeItem<SVNode> treeItem = index.get(node);
 				/**
 				 * TODO Analyze this problem:
 				 *
@@ -434,10 +534,11 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 				 * dangerous
 				 */
 				if (treeItem == null) {
-					Logger.print("Removing unfound treeItem:" + node.getExtendedId());
+					// Its branch may have not been created yet
+					index.markRemoved(node);
 					return;
 				}
-				final List<TreeItem<SVNode>> treeItemChildren = treeItem.getChildren();
+				final List<TreeItem<SVNode>> treeItemChildren = ((LazyTreeItem) treeItem).getMaterializedChildren();
 				if (treeItemChildren != null) {
 					/**
 					 * Do not use directly the list as it will suffer concurrent
@@ -445,7 +546,7 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 					 */
 					@SuppressWarnings("unchecked") final TreeItem<SVNode>[] children = treeItemChildren.toArray(new TreeItem[0]);
 					for (TreeItem<SVNode> child : children) {
-						doRemoveNode(child.getValue());
+						doRemoveNode(stageID, child.getValue());
 					}
 				}
 
@@ -459,7 +560,7 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 				if (treeItem.getParent() != null) {
 					treeItem.getParent().getChildren().remove(treeItem);
 				}
-				treeViewData.remove(treeItem.getValue());
+				index.remove(node, treeItem);
 				if (selected != null) {
 					// Ugly workaround
 					getSelectionModel().select(selected);
@@ -471,57 +572,34 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 
 	}
 
-	void addNewNode(final SVNode alive, final boolean showNodesIdInTree, final boolean showFilteredNodesInTree) {
+	void addNewNode(final StageID stageID, final SVNode alive, final boolean showNodesIdInTree, final boolean showFilteredNodesInTree) {
+		staleModels.add(stageID);
 		blockSelection = true;
-		doAddNewNode(alive, showNodesIdInTree, showFilteredNodesInTree);
+		doAddNewNode(stageID, alive, showNodesIdInTree, showFilteredNodesInTree);
 		blockSelection = false;
 	}
 
-	private void doAddNewNode(final SVNode alive, final boolean showNodesIdInTree, final boolean showFilteredNodesInTree) {
+	private void doAddNewNode(final StageID stageID, final SVNode alive, final boolean showNodesIdInTree, final boolean showFilteredNodesInTree) {
 		try {
 			if (ConnectorUtils.isNormalNode(alive)) {
+				final TreeIndex index = getIndex(stageID);
+				index.unmarkRemoved(alive);
 				final TreeItem<SVNode> selected = getSelectionModel().getSelectedItem();
-				final TreeItem<SVNode> treeItem = createTreeItem(alive, showNodesIdInTree, showFilteredNodesInTree);
-				// childItems[x] could be null because of bounds
-				// rectangles or filtered nodes
-				if (treeItem != null) {
-					final SVNode parent = alive.getParent();
-					final TreeItem<SVNode> parentTreeItem = getTreeItem(parent);
-					if (parentTreeItem == null) return;
+				final SVNode parent = alive.getParent();
+				// The model of a lazy parent does not have the new node
+				final TreeItem<SVNode> parentTreeItem = materialize(stageID, parent);
+				if (parentTreeItem == null) return;
 
-					/**
-					 * In some situations node could be previously added
-					 */
-					final boolean found = findInTree(parentTreeItem, alive);
-
-					if (!found) {
-						/**
-						 * We try to insert the treeItem in the real position of
-						 * the parent
-						 */
-						boolean posFound = false;
-						int previousPos = -1;
-						final List<SVNode> childrens = parent.getChildren();
-						// if (childrens != null) {
-						final int pos = childrens.indexOf(alive);
+				/**
+				 * In some situations node could be previously added
+				 */
+				if (index.get(alive) == null) {
+					final TreeItem<SVNode> treeItem = createTreeItem(stageID, alive, showNodesIdInTree, showFilteredNodesInTree);
+					// treeItem could be null because of bounds rectangles or
+					// filtered nodes
+					if (treeItem != null) {
 						final List<TreeItem<SVNode>> items = parentTreeItem.getChildren();
-						for (int i = 0; i < items.size(); i++) {
-							final TreeItem<SVNode> node = items.get(i);
-							final int actualPos = childrens.indexOf(node.getValue());
-							if (previousPos > actualPos) {
-								Logger.print("This should never happen :" + parent.getExtendedId() + " node:" + node.getValue().getExtendedId());
-							}
-							if (pos > previousPos && pos < actualPos) {
-								parentTreeItem.getChildren().add(i, treeItem);
-								posFound = true;
-								break;
-							}
-							previousPos = actualPos;
-							// }
-						}
-						if (!posFound) {
-							parentTreeItem.getChildren().add(treeItem);
-						}
+						items.add(insertionIndex(parent, alive, items), treeItem);
 					}
 				}
 				if (selected != null) {
@@ -531,23 +609,73 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 			}
 
 		} catch (final NullPointerException e) {
-			throw new RuntimeException("Error while adding new node:" + alive.getExtendedId() + " parent:" + alive.getParent() + " treeParent:" + (alive.getParent() == null ? "null" : getTreeItem(alive.getParent())), e);
+			throw new RuntimeException("Error while adding new node:" + alive.getExtendedId() + " parent:" + alive.getParent() + " treeParent:" + (alive.getParent() == null ? "null" : getIndex(stageID).get(alive.getParent())), e);
 		}
 	}
 
-	private TreeItem<SVNode> getTreeItem(final SVNode node) {
-		final TreeItem<SVNode> item = treeViewData.get(node);
-		if (item == null) {
-			for (final SVNode type : treeViewData.keySet()) {
-				if (type.equals(node)) {
-					Logger.print("Error on hashmap:" + node.getExtendedId() + " and type:" + type.getExtendedId() + " are equals but:" + treeViewData.containsKey(node));
-				}
+	/**
+	 * Position of a new child among the items of its parent. The items follow
+	 * the order of the parent, so it is a binary search on their positions,
+	 * unless some item is not found in the parent.
+	 */
+	private static int insertionIndex(final SVNode parent, final SVNode child, final List<TreeItem<SVNode>> items) {
+		final int pos = parent.indexOfChild(child);
+		if (pos < 0) {
+			return items.size();
+		}
+		int low = 0;
+		int high = items.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			final int midPos = parent.indexOfChild(items.get(mid).getValue());
+			if (midPos < 0) {
+				return linearInsertionIndex(parent, pos, items);
+			}
+			if (midPos < pos) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
 		}
-		return item;
+		return low;
+	}
+
+	/**
+	 * Before the first item that comes after the child in the parent, the
+	 * items not found in the parent are skipped
+	 */
+	private static int linearInsertionIndex(final SVNode parent, final int pos, final List<TreeItem<SVNode>> items) {
+		for (int i = 0; i < items.size(); i++) {
+			if (parent.indexOfChild(items.get(i).getValue()) >= pos) {
+				return i;
+			}
+		}
+		return items.size();
+	}
+
+	private TreeIndex getIndex(final StageID stageID) {
+		return treeIndexes.computeIfAbsent(stageID, id -> new TreeIndex());
+	}
+
+	private boolean isInTree(final TreeItem<SVNode> treeItem) {
+		TreeItem<SVNode> item = treeItem;
+		while (item.getParent() != null) {
+			item = item.getParent();
+		}
+		return item == getRoot();
+	}
+
+	private TreeItem<SVNode> createTreeItem(final StageID stageID, final SVNode node, final boolean showNodesIdInTree, final boolean showFilteredNodesInTree) {
+		return createTreeItem(stageID, node, showNodesIdInTree, showFilteredNodesInTree, null);
 	}
 
-	private TreeItem<SVNode> createTreeItem(final SVNode node, final boolean showNodesIdInTree, final boolean showFilteredNodesInTree) {
+	/**
+	 * Items found in reusable are updated in place (and removed from it)
+	 * instead of being created again. The children of new items are only
+	 * created when needed, see {@link LazyTreeItem}.
+	 */
+	private TreeItem<SVNode> createTreeItem(final StageID stageID, final SVNode node, final boolean showNodesIdInTree, final boolean showFilteredNodesInTree,
+			final TreeIndex reusable) {
 		/**
 		 * Strategy:
 		 *
@@ -559,87 +687,134 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 		 * one, include this node as invalidForFilter, if it is not, do not
 		 * allow this node to be included
 		 */
+		final TreeIndex index = getIndex(stageID);
+		if (index.isRemoved(node)) {
+			return null;
+		}
 		boolean nodeAccepted = true;
 		boolean childrenAccepted = true;
 		boolean ignoreShowFiltered = false;
 		boolean expand = false;
 
 		for (final NodeFilter filter : activeNodeFilters) {
-			if (!filter.accept(node)) {
+			if (!filter.accept(stageID, node)) {
 				nodeAccepted = false;
 				ignoreShowFiltered |= filter.ignoreShowFilteredNodesInTree();
-				childrenAccepted &= filter.allowChildrenOnRejection();
+				childrenAccepted &= filter.allowChildrenOnRejection() && filter.mayAcceptDescendants(stageID, node);
 			}
 			expand |= filter.expandAllNodes();
 		}
+		if (!nodeAccepted && (ignoreShowFiltered || !showFilteredNodesInTree) && (!childrenAccepted || !hasIncludedChild(stageID, index, node, showFilteredNodesInTree))) {
+			return null;
+		}
 		node.setShowId(showNodesIdInTree);
-		final ImageView graphic = new ImageView(DisplayUtils.getIcon(node));
-		graphic.setFitHeight(16);
-		graphic.setFitWidth(16);
-		final TreeItem<SVNode> treeItem = new TreeItem<>(node, graphic);
-		if (node.equals(scenicView.getSelectedNode())) {
+		// Nodes that are only included for their children
+		node.setInvalidForFilter(!nodeAccepted);
+		LazyTreeItem treeItem = reusable != null ? (LazyTreeItem) reusable.get(node) : null;
+		if (treeItem != null) {
+			reusable.remove(node, treeItem);
+		}
+		final SVNode previousValue = treeItem != null ? treeItem.getValue() : null;
+		if (treeItem == null) {
+			treeItem = new LazyTreeItem(stageID, node);
+		} else if (previousValue != node) {
+			treeItem.setNode(node);
+		}
+		treeItem.showNodesIdInTree = showNodesIdInTree;
+		treeItem.showFilteredNodesInTree = showFilteredNodesInTree;
+		// The filters may have changed
+		treeItem.leaf = null;
+		if (scenicView.isSelected(stageID, node)) {
 			previouslySelectedItem = treeItem;
 		}
-		/**
-		 * TODO Improve this calculation THIS IS NOT CORRECT AS NEW NODES ARE
-		 * INCLUDED ON TOP a) updateCount=true: We are adding all the nodes b)
-		 * updateCount=false: We are adding only one node, find its position
-		 */
-		treeViewData.put(node, treeItem);
+		index.put(node, treeItem);
 
-		final List<TreeItem<SVNode>> childItems = new ArrayList<>();
-		for (final SVNode child : node.getChildren()) {
-			childItems.add(createTreeItem(child, showNodesIdInTree, showFilteredNodesInTree));
-		}
-		for (final TreeItem<SVNode> childItem : childItems) {
-			// childItems[x] could be null because of bounds rectangles or
-			// filtered nodes
-			if (childItem != null) {
-				treeItem.getChildren().add(childItem);
+		if (treeItem.isMaterialized()) {
+			final List<TreeItem<SVNode>> childItems = createChildItems(treeItem, reusable);
+			if (!treeItem.getChildren().equals(childItems)) {
+				treeItem.getChildren().setAll(childItems);
 			}
 		}
 		final int hash = node.hashCode();
 		final String nodeClass = node.getNodeClass();
-		if (!forcedCollapsedItems.contains(hash) && !forcedCollapsedNodeClassItems.contains(nodeClass)) {
-			treeItem.setExpanded(expand || node.isExpanded() || forcedExpandedItems.contains(hash) || forcedExpandedNodeClassItems.contains(nodeClass));
-		}
-
-		if (nodeAccepted) {
-			return treeItem;
-		} else if (!nodeAccepted && !ignoreShowFiltered && showFilteredNodesInTree) {
-			/**
-			 * Mark the node as invalidForFilter
-			 */
-			node.setInvalidForFilter(true);
-			return treeItem;
-		} else if (!nodeAccepted && childrenAccepted) {
+		final boolean forcedExpanded = forcedExpandedItems.contains(hash) || forcedExpandedNodeClassItems.contains(nodeClass);
+		if (forcedCollapsedItems.contains(hash) || forcedCollapsedNodeClassItems.contains(nodeClass)) {
+			if (previousValue != null) {
+				treeItem.setExpanded(false);
+			}
+		} else if (previousValue == null || expand || forcedExpanded || previousValue.isExpanded() != node.isExpanded()) {
 			/**
-			 * Only return if the node has children
+			 * Reused items keep the expansion chosen by the user unless the
+			 * node itself changed it (collapseControls...)
 			 */
-			if (treeItem.getChildren().isEmpty()) {
-				return null;
-			} else {
-				/**
-				 * Mark the node as invalidForFilter
-				 */
-				node.setInvalidForFilter(true);
-				return treeItem;
+			treeItem.setExpanded(expand || node.isExpanded() || forcedExpanded);
+		}
+		return treeItem;
+	}
+
+	private List<TreeItem<SVNode>> createChildItems(final LazyTreeItem treeItem, final TreeIndex reusable) {
+		final List<TreeItem<SVNode>> childItems = new ArrayList<>();
+		for (final SVNode child : treeItem.getValue().getChildren()) {
+			final TreeItem<SVNode> childItem = createTreeItem(treeItem.stageID, child, treeItem.showNodesIdInTree, treeItem.showFilteredNodesInTree, reusable);
+			// childItem could be null because of bounds rectangles or
+			// filtered nodes
+			if (childItem != null) {
+				childItems.add(childItem);
 			}
-		} else {
-			return null;
 		}
+		return childItems;
 	}
 
-	private boolean findInTree(final TreeItem<SVNode> parentTreeItem, final SVNode alive) {
-		if (parentTreeItem == null) return false;
-		final List<TreeItem<SVNode>> actualNodes = parentTreeItem.getChildren();
-		boolean found = false;
-		for (final TreeItem<SVNode> node : actualNodes) {
-			if (node.getValue().equals(alive)) {
-				found = true;
+	/**
+	 * Same decision as createTreeItem, without creating the items
+	 */
+	private boolean hasIncludedChild(final StageID stageID, final TreeIndex index, final SVNode node, final boolean showFilteredNodesInTree) {
+		for (final SVNode child : node.getChildren()) {
+			if (index.isRemoved(child)) {
+				continue;
+			}
+			boolean nodeAccepted = true;
+			boolean childrenAccepted = true;
+			boolean ignoreShowFiltered = false;
+			for (final NodeFilter filter : activeNodeFilters) {
+				if (!filter.accept(stageID, child)) {
+					nodeAccepted = false;
+					ignoreShowFiltered |= filter.ignoreShowFilteredNodesInTree();
+					childrenAccepted &= filter.allowChildrenOnRejection() && filter.mayAcceptDescendants(stageID, child);
+				}
+			}
+			if (nodeAccepted || (!ignoreShowFiltered && showFilteredNodesInTree) || (childrenAccepted && hasIncludedChild(stageID, index, child, showFilteredNodesInTree))) {
+				return true;
 			}
 		}
-		return found;
+		return false;
+	}
+
+	/**
+	 * Item of the node, creating the lazy items on its path if needed
+	 */
+	private TreeItem<SVNode> materialize(final StageID stageID, final SVNode node) {
+		if (node == null) {
+			return null;
+		}
+		TreeItem<SVNode> item = getIndex(stageID).get(node);
+		if (item == null) {
+			final TreeItem<SVNode> parentItem = materialize(stageID, node.getParent());
+			if (parentItem != null) {
+				parentItem.getChildren();
+				item = getIndex(stageID).get(node);
+			}
+		}
+		return item;
+	}
+
+	/**
+	 * Expands the ancestors of the item so it is visible
+	 */
+	private static void expandPath(final TreeItem<SVNode> item) {
+		for (TreeItem<SVNode> parent = item.getParent(); parent != null; parent = parent.getParent()) {
+			parent.setExpanded(true);
+		}
 	}
 
 //    /**
@@ -661,30 +836,56 @@ public class ScenegraphTreeView extends TreeView<SVNode> {
 //
 //    }
 
-	private void removeForNode(final TreeItem<SVNode> treeItem) {
-		if (treeItem != null) {
-			final List<TreeItem<SVNode>> treeItemChildren = treeItem.getChildren();
-			if (treeItemChildren != null) {
-				/**
-				 * Do not use directly the list as it will suffer concurrent
-				 * modifications
-				 */
-				@SuppressWarnings("unchecked") final TreeItem<SVNode>[] children = treeItemChildren.toArray(new TreeItem[0]);
-				for (TreeItem<SVNode> child : children) {
-					removeForNode(child);
-				}
+	/**
+	 * Only creates the items of its children when they are needed: when the
+	 * item is expanded in the tree view, or a selection or an added node
+	 * needs them
+	 */
+	final class LazyTreeItem extends TreeItem<SVNode> {
+
+		final StageID stageID;
+		boolean showNodesIdInTree;
+		boolean showFilteredNodesInTree;
+		private boolean materialized;
+		private Boolean leaf;
+
+		LazyTreeItem(final StageID stageID, final SVNode node) {
+			super(node);
+			this.stageID = stageID;
+		}
+
+		boolean isMaterialized() {
+			return materialized;
+		}
+
+		void setNode(final SVNode node) {
+			leaf = null;
+			setValue(node);
+		}
+
+		List<TreeItem<SVNode>> getMaterializedChildren() {
+			return materialized ? super.getChildren() : Collections.emptyList();
+		}
+
+		@Override
+		public ObservableList<TreeItem<SVNode>> getChildren() {
+			if (!materialized) {
+				materialized = true;
+				super.getChildren().setAll(createChildItems(this, null));
 			}
+			return super.getChildren();
+		}
 
-			// This does not seem to delete the TreeItem from the tree -- only
-			// moves
-			// it up a level visually
-			/**
-			 * I don't know why this protection is needed
-			 */
-			if (treeItem.getParent() != null) {
-				treeItem.getParent().getChildren().remove(treeItem);
+		@Override
+		public boolean isLeaf() {
+			if (materialized) {
+				return super.getChildren().isEmpty();
+			}
+			if (leaf == null) {
+				// Same children as createChildItems, without creating them
+				leaf = !hasIncludedChild(stageID, getIndex(stageID), getValue(), showFilteredNodesInTree);
 			}
-			treeViewData.remove(treeItem.getValue());
+			return leaf;
 		}
 	}
 
@@ -17,9 +17,8 @@
  */
 package org.scenicview.view;
 
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -34,10 +33,8 @@ import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
-import javafx.util.Duration;
 import org.fxconnector.*;
 import org.fxconnector.event.*;
-import org.fxconnector.event.FXConnectorEvent.SVEventType;
 import org.fxconnector.node.SVNode;
 import org.scenicview.model.Persistence;
 import org.scenicview.model.update.AppsRepository;
@@ -51,8 +48,10 @@ import org.scenicview.view.tabs.DetailsTab;
 import org.scenicview.view.tabs.EventLogTab;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The base UI
@@ -86,8 +85,25 @@ public class ScenicViewGui {
 	// filter area
 //    private TitledPane filtersPane;
 	private FilterTextField propertyFilterField;
+	private FilterTextField idFilterField;
+	private FilterTextField classNameFilterField;
 	private List<NodeFilter> activeNodeFilters;
 
+	/**
+	 * The ID and class name filters search the index in the background, only
+	 * the results of the last search are applied
+	 */
+	private static final int MAX_SEARCH_RETRIES = 3;
+	private final SearchIndex searchIndex = new SearchIndex();
+	private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		final Thread thread = new Thread(runnable, "ScenicView.Search");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private SearchIndex.Result idSearch;
+	private SearchIndex.Result classNameSearch;
+	private int lastSearch;
+
 	// tree area
 	private Node treeViewScanningPlaceholder;
 	private ScenegraphTreeView treeView;
@@ -102,7 +118,13 @@ public class ScenicViewGui {
 
 
 	public final Configuration configuration = new Configuration();
-	private final List<FXConnectorEvent> eventQueue = new LinkedList<>();
+	private final EventQueue eventQueue = new EventQueue();
+	/**
+	 * Time spent showing events on each pulse, can be tuned with
+	 * -Dscenicview.eventBudget (ms)
+	 */
+	private static final long EVENT_BUDGET = TimeUnit.MILLISECONDS.toNanos(Long.getLong("scenicview.eventBudget", 8));
+	private static final long STATUS_REFRESH = TimeUnit.MILLISECONDS.toNanos(250);
 
 	private final UpdateStrategy updateStrategy;
 	private long lastMousePosition;
@@ -121,14 +143,12 @@ public class ScenicViewGui {
 					case MOUSE_POSITION:
 						if (System.currentTimeMillis() - lastMousePosition > 500) {
 							lastMousePosition = System.currentTimeMillis();
-							// No need to synchronize here
-							eventQueue.add(appEvent);
+							eventQueue.offer(appEvent);
 						}
 						break;
 
 					default:
-						// No need to synchronize here
-						eventQueue.add(appEvent);
+						eventQueue.offer(appEvent);
 						break;
 				}
 
@@ -177,19 +197,28 @@ public class ScenicViewGui {
 
 		// we update Scenic View on a separate thread, based on events coming
 		// in from FX Connector. The events arrive into the eventQueue, and
-		// are processed here
-		Timeline eventDispatcher = new Timeline(new KeyFrame(Duration.millis(60), event -> {
-			// No need to synchronize
-			while (!eventQueue.isEmpty()) {
-				try {
-					doDispatchEvent(eventQueue.remove(0));
-				} catch (final Exception e) {
-					ExceptionLogger.submitException(e);
+		// are processed here on each pulse, only for EVENT_BUDGET so a burst
+		// of events does not freeze the UI
+		new AnimationTimer() {
+			private long lastStatus;
+
+			@Override
+			public void handle(final long now) {
+				final long deadline = System.nanoTime() + EVENT_BUDGET;
+				FXConnectorEvent queued;
+				while (System.nanoTime() < deadline && (queued = eventQueue.poll()) != null) {
+					try {
+						doDispatchEvent(queued);
+					} catch (final Exception e) {
+						ExceptionLogger.submitException(e);
+					}
+				}
+				if (now - lastStatus > STATUS_REFRESH) {
+					lastStatus = now;
+					statusBar.updateEventQueue(eventQueue.size(), TimeUnit.NANOSECONDS.toMillis(eventQueue.getLag()));
 				}
 			}
-		}));
-		eventDispatcher.setCycleCount(Animation.INDEFINITE);
-		eventDispatcher.play();
+		}.start();
 	}
 
 	private void buildUI() {
@@ -270,16 +299,16 @@ public class ScenicViewGui {
 		propertyFilterField.setOnKeyReleased(arg0 -> filterProperties(propertyFilterField.getText()));
 		propertyFilterField.setDisable(true);
 
-		final FilterTextField idFilterField = createFilterField("Type Node ID's here");
+		idFilterField = createFilterField("Type Node ID's here");
 		idFilterField.setOnButtonClick(() -> {
 			idFilterField.setText("");
-			update();
+			search();
 		});
 
-		final FilterTextField classNameFilterField = createFilterField("Type class names here");
+		classNameFilterField = createFilterField("Type class names here");
 		classNameFilterField.setOnButtonClick(() -> {
 			classNameFilterField.setText("");
-			update();
+			search();
 		});
 
 		searchBar = new GridPane();
@@ -319,7 +348,7 @@ public class ScenicViewGui {
 			}
 
 			@Override
-			public boolean accept(final SVNode node) {
+			public boolean accept(final StageID stageID, final SVNode node) {
 				// do not create tree nodes for our bounds rectangles
 				return ConnectorUtils.isNormalNode(node);
 			}
@@ -342,7 +371,7 @@ public class ScenicViewGui {
 			}
 
 			@Override
-			public boolean accept(final SVNode node) {
+			public boolean accept(final StageID stageID, final SVNode node) {
 				return showInvisibleNodes.isSelected() || node.isVisible();
 			}
 
@@ -364,10 +393,13 @@ public class ScenicViewGui {
 			}
 
 			@Override
-			public boolean accept(final SVNode node) {
-				if (idFilterField.getText().equals(""))
-					return true;
-				return node.getId() != null && node.getId().toLowerCase().indexOf(idFilterField.getText().toLowerCase()) != -1;
+			public boolean accept(final StageID stageID, final SVNode node) {
+				return idSearch == null || idSearch.matches(stageID, node);
+			}
+
+			@Override
+			public boolean mayAcceptDescendants(final StageID stageID, final SVNode node) {
+				return idSearch == null || idSearch.isOnPath(stageID, node);
 			}
 
 			@Override
@@ -377,7 +409,7 @@ public class ScenicViewGui {
 
 			@Override
 			public boolean expandAllNodes() {
-				return !idFilterField.getText().equals("");
+				return idSearch != null;
 			}
 		});
 
@@ -388,12 +420,14 @@ public class ScenicViewGui {
 			}
 
 			@Override
-			public boolean accept(final SVNode node) {
-				if (classNameFilterField.getText().equals(""))
-					return true;
-
+			public boolean accept(final StageID stageID, final SVNode node) {
 				// Allow reduces or complete className
-				return node.getNodeClass().toLowerCase().indexOf(classNameFilterField.getText().toLowerCase()) != -1;
+				return classNameSearch == null || classNameSearch.matches(stageID, node);
+			}
+
+			@Override
+			public boolean mayAcceptDescendants(final StageID stageID, final SVNode node) {
+				return classNameSearch == null || classNameSearch.isOnPath(stageID, node);
 			}
 
 			@Override
@@ -403,7 +437,7 @@ public class ScenicViewGui {
 
 			@Override
 			public boolean expandAllNodes() {
-				return !classNameFilterField.getText().equals("");
+				return classNameSearch != null;
 			}
 		});
 	}
@@ -676,10 +710,12 @@ public class ScenicViewGui {
 //    }
 
 	public void removeApp(final AppController appController) {
+		searchIndex.removeApp(appController.getID());
 		treeView.removeApp(appController);
 	}
 
 	public void removeStage(final StageController stageController) {
+		searchIndex.removeStage(stageController.getID());
 		treeView.removeStage(stageController);
 	}
 
@@ -796,7 +832,7 @@ public class ScenicViewGui {
 				activeStage = controller;
 			}
 			storeSelectedNode(value);
-			eventsTab.setSelectedNode(value);
+			eventsTab.setSelectedNode(activeStage.getID(), value);
 			loadAPI(null);
 			propertyFilterField.setText("");
 			propertyFilterField.setDisable(value == null);
@@ -834,7 +870,49 @@ public class ScenicViewGui {
 	}
 
 	private FilterTextField createFilterField(final String prompt) {
-		return createFilterField(prompt, event -> update());
+		return createFilterField(prompt, event -> search());
+	}
+
+	private void search() {
+		search(0);
+	}
+
+	private void search(final int retries) {
+		final String id = idFilterField.getText();
+		final String className = classNameFilterField.getText();
+		final int search = ++lastSearch;
+		searchExecutor.execute(() -> {
+			final SearchIndex.Result idResult = searchIndex.search(SearchIndex.Field.ID, id);
+			final SearchIndex.Result classNameResult = searchIndex.search(SearchIndex.Field.NODE_CLASS, className);
+			Platform.runLater(() -> {
+				if (search != lastSearch) {
+					return;
+				}
+				idSearch = idResult;
+				classNameSearch = classNameResult;
+				treeView.refilter(showNodesIdInTree.isSelected(), showFilteredNodesInTree.isSelected());
+				if ((isOutdated(idResult) || isOutdated(classNameResult)) && retries < MAX_SEARCH_RETRIES) {
+					/**
+					 * Nodes came or went meanwhile, the result is still applied
+					 * so a scene that keeps changing gets filtered
+					 */
+					search(retries + 1);
+				}
+			});
+		});
+	}
+
+	private boolean isOutdated(final SearchIndex.Result result) {
+		return result != null && result.getVersion() != searchIndex.getVersion();
+	}
+
+	/**
+	 * Called with the new tree of a stage before it is shown
+	 */
+	void stageModelUpdated(final StageID stageID, final SVNode model) {
+		searchIndex.update(stageID, model);
+		searchIndex.refresh(idSearch, stageID);
+		searchIndex.refresh(classNameSearch, stageID);
 	}
 
 	private FilterTextField createFilterField(final String prompt, final EventHandler<KeyEvent> keyHandler) {
@@ -860,6 +938,7 @@ public class ScenicViewGui {
 	}
 
 	public void close() {
+		searchExecutor.shutdownNow();
 		closeApps();
 		saveProperties();
 		updateStrategy.finish();
@@ -983,7 +1062,7 @@ public class ScenicViewGui {
 			}
 			case NODE_SELECTED: {
 				componentSelectOnClick.setSelected(false);
-				treeView.nodeSelected(((NodeSelectedEvent) appEvent).getNode());
+				treeView.nodeSelected(appEvent.getStageID(), ((NodeSelectedEvent) appEvent).getNode());
 
 				scenicViewStage.toFront();
 				break;
@@ -1007,25 +1086,14 @@ public class ScenicViewGui {
 				break;
 			}
 			case NODE_ADDED: {
-				/**
-				 * First check if a we have a NODE_REMOVED in the queue
-				 */
-				final int removedPos = indexOfNode(((NodeAddRemoveEvent) appEvent).getNode(), true);
-				if (removedPos == -1) {
-					treeView.addNewNode(((NodeAddRemoveEvent) appEvent).getNode(), showNodesIdInTree.isSelected(), showFilteredNodesInTree.isSelected());
-				} else {
-					eventQueue.remove(removedPos);
-				}
-
+				// Pairs added and removed have been dropped by the queue
+				searchIndex.add(appEvent.getStageID(), ((NodeAddRemoveEvent) appEvent).getNode(), idSearch, classNameSearch);
+				treeView.addNewNode(appEvent.getStageID(), ((NodeAddRemoveEvent) appEvent).getNode(), showNodesIdInTree.isSelected(), showFilteredNodesInTree.isSelected());
 				break;
 			}
 			case NODE_REMOVED: {
-				final int addedPos = indexOfNode(((NodeAddRemoveEvent) appEvent).getNode(), false);
-				if (addedPos == -1) {
-					treeView.removeNode(((NodeAddRemoveEvent) appEvent).getNode());
-				} else {
-					eventQueue.remove(addedPos);
-				}
+				searchIndex.remove(appEvent.getStageID(), ((NodeAddRemoveEvent) appEvent).getNode());
+				treeView.removeNode(appEvent.getStageID(), ((NodeAddRemoveEvent) appEvent).getNode());
 				break;
 			}
 			case DETAILS: {
@@ -1053,21 +1121,16 @@ public class ScenicViewGui {
 		}
 	}
 
-	private int indexOfNode(final SVNode node, final boolean add) {
-		for (int i = 0; i < eventQueue.size(); i++) {
-			final FXConnectorEvent ev = eventQueue.get(i);
-			if ((add && ev.getType() == SVEventType.NODE_REMOVED) || (!add && ev.getType() == SVEventType.NODE_ADDED)) {
-				final NodeAddRemoveEvent ev2 = (NodeAddRemoveEvent) ev;
-				if (ev2.getNode().equals(node)) {
-					return i;
-				}
-			}
-		}
-		return -1;
+	boolean isActive(final StageID stageID) {
+		return activeStage.getID().equals(stageID);
 	}
 
-	private boolean isActive(final StageID stageID) {
-		return activeStage.getID().equals(stageID);
+	/**
+	 * Node IDs are only unique within an application, so the stage must match
+	 * too
+	 */
+	boolean isSelected(final StageID stageID, final SVNode node) {
+		return selectedNode != null && activeStage != null && isActive(stageID) && selectedNode.equals(node);
 	}
 
 	/**
@@ -0,0 +1,299 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.scenicview.view;
+
+import org.fxconnector.StageID;
+import org.fxconnector.node.NodeType;
+import org.fxconnector.node.SVNode;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted index of the node IDs and class names of every stage, so the tree
+ * filters do not match every node again on each keystroke. It is kept up to
+ * date on the FX thread from the tree updates and the added and removed
+ * nodes, and searched from a background thread.
+ * <p>
+ * Only scene nodes are indexed, each stage numbers them densely so the bit
+ * sets only take the size of the stage. The removed nodes keep their
+ * descendants and ordinals until the next update of the stage.
+ */
+final class SearchIndex {
+
+	enum Field {
+		ID, NODE_CLASS
+	}
+
+	private final Map<StageID, StageIndex> stages = new HashMap<>();
+	private int version;
+
+	synchronized int getVersion() {
+		return version;
+	}
+
+	synchronized void update(final StageID stageID, final SVNode root) {
+		final StageIndex index = new StageIndex();
+		index.add(root, -1);
+		stages.put(stageID, index);
+		version++;
+	}
+
+	/**
+	 * Adds a branch, the given results are updated with it
+	 */
+	synchronized void add(final StageID stageID, final SVNode node, final Result... results) {
+		final StageIndex index = stages.get(stageID);
+		if (index == null) {
+			return;
+		}
+		final SVNode parent = node.getParent();
+		index.add(node, parent != null && isIndexed(parent) ? index.ordinal(parent.getNodeId()) : -1);
+		version++;
+		for (final Result result : results) {
+			if (result != null) {
+				result.add(stageID, index, node);
+			}
+		}
+	}
+
+	synchronized void remove(final StageID stageID, final SVNode node) {
+		final StageIndex index = stages.get(stageID);
+		if (index != null && isIndexed(node)) {
+			index.remove(node);
+			version++;
+		}
+	}
+
+	synchronized void removeStage(final StageID stageID) {
+		stages.remove(stageID);
+		version++;
+	}
+
+	synchronized void removeApp(final int appID) {
+		stages.keySet().removeIf(id -> id.getAppID() == appID);
+		version++;
+	}
+
+	/**
+	 * Nodes whose field contains the text, null when the text is empty
+	 */
+	synchronized Result search(final Field field, final String text) {
+		if (text.isEmpty()) {
+			return null;
+		}
+		final Result result = new Result(field, text.toLowerCase(), version);
+		for (final Map.Entry<StageID, StageIndex> entry : stages.entrySet()) {
+			result.search(entry.getKey(), entry.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * Searches again the stage after an update
+	 */
+	synchronized void refresh(final Result result, final StageID stageID) {
+		final StageIndex index = stages.get(stageID);
+		if (result != null && index != null) {
+			result.search(stageID, index);
+		}
+	}
+
+	private static boolean isIndexed(final SVNode node) {
+		return node.getNodeType() == NodeType.REMOTE_NODE || node.getNodeType() == NodeType.REAL_NODE;
+	}
+
+	private static String getValue(final Field field, final SVNode node) {
+		final String value = field == Field.ID ? node.getId() : node.getNodeClass();
+		return value != null ? value.toLowerCase() : null;
+	}
+
+	private static final class StageIndex {
+
+		/**
+		 * Dense ordinals of the nodes of the stage, the postings and the parents
+		 * use them instead of the node IDs of the whole application
+		 */
+		private final Map<Integer, Integer> ordinals = new HashMap<>();
+		private int[] parents = new int[64];
+		/**
+		 * Nodes by lower case value of each field, the values repeat a lot so
+		 * a search only has to go through the distinct ones
+		 */
+		private final Map<String, BitSet> ids = new HashMap<>();
+		private final Map<String, BitSet> classes = new HashMap<>();
+
+		Map<String, BitSet> getPostings(final Field field) {
+			return field == Field.ID ? ids : classes;
+		}
+
+		/**
+		 * -1 when the node is not indexed
+		 */
+		int size() {
+			return ordinals.size();
+		}
+
+		int ordinal(final int nodeID) {
+			final Integer ordinal = ordinals.get(nodeID);
+			return ordinal != null ? ordinal : -1;
+		}
+
+		void add(final SVNode node, final int parent) {
+			int ordinal = -1;
+			if (isIndexed(node)) {
+				// A node added again keeps its ordinal
+				ordinal = ordinals.computeIfAbsent(node.getNodeId(), id -> ordinals.size());
+				for (final Field field : Field.values()) {
+					final String value = getValue(field, node);
+					if (value != null) {
+						getPostings(field).computeIfAbsent(value, key -> new BitSet()).set(ordinal);
+					}
+				}
+				if (ordinal >= parents.length) {
+					parents = Arrays.copyOf(parents, parents.length * 2);
+				}
+				parents[ordinal] = parent;
+			}
+			for (final SVNode child : node.getChildren()) {
+				add(child, ordinal);
+			}
+		}
+
+		void remove(final SVNode node) {
+			final int ordinal = ordinal(node.getNodeId());
+			if (ordinal < 0) {
+				return;
+			}
+			for (final Field field : Field.values()) {
+				final String value = getValue(field, node);
+				final BitSet nodes = value != null ? getPostings(field).get(value) : null;
+				if (nodes != null) {
+					nodes.clear(ordinal);
+					if (nodes.isEmpty()) {
+						getPostings(field).remove(value);
+					}
+				}
+			}
+			parents[ordinal] = -1;
+		}
+
+		void markAncestors(final int ordinal, final BitSet paths) {
+			int parent = parents[ordinal];
+			while (parent >= 0 && !paths.get(parent)) {
+				paths.set(parent);
+				parent = parents[parent];
+			}
+		}
+	}
+
+	/**
+	 * Matches of a search, confined to the FX thread once published
+	 */
+	static final class Result {
+
+		private final Field field;
+		private final String text;
+		private final int version;
+		private final Map<StageID, BitSet> matches = new HashMap<>();
+		/**
+		 * Ancestors of the matches
+		 */
+		private final Map<StageID, BitSet> paths = new HashMap<>();
+		/**
+		 * Indexes searched, the ordinals of the bit sets are theirs. The nodes
+		 * numbered after the search are matched on their value instead.
+		 */
+		private final Map<StageID, StageIndex> indexes = new HashMap<>();
+		private final Map<StageID, Integer> searched = new HashMap<>();
+
+		private Result(final Field field, final String text, final int version) {
+			this.field = field;
+			this.text = text;
+			this.version = version;
+		}
+
+		int getVersion() {
+			return version;
+		}
+
+		boolean matches(final StageID stageID, final SVNode node) {
+			final int ordinal = ordinal(stageID, node);
+			if (ordinal < 0) {
+				final String value = getValue(field, node);
+				return value != null && value.contains(text);
+			}
+			return matches.get(stageID).get(ordinal);
+		}
+
+		/**
+		 * False when no descendant of the node matches
+		 */
+		boolean isOnPath(final StageID stageID, final SVNode node) {
+			final int ordinal = ordinal(stageID, node);
+			return ordinal < 0 || paths.get(stageID).get(ordinal);
+		}
+
+		private int ordinal(final StageID stageID, final SVNode node) {
+			final StageIndex index = indexes.get(stageID);
+			if (index == null || !isIndexed(node)) {
+				return -1;
+			}
+			final int ordinal = index.ordinal(node.getNodeId());
+			return ordinal < searched.get(stageID) ? ordinal : -1;
+		}
+
+		private void search(final StageID stageID, final StageIndex index) {
+			final BitSet found = new BitSet();
+			for (final Map.Entry<String, BitSet> entry : index.getPostings(field).entrySet()) {
+				if (entry.getKey().contains(text)) {
+					found.or(entry.getValue());
+				}
+			}
+			final BitSet ancestors = new BitSet();
+			for (int ordinal = found.nextSetBit(0); ordinal >= 0; ordinal = found.nextSetBit(ordinal + 1)) {
+				index.markAncestors(ordinal, ancestors);
+			}
+			matches.put(stageID, found);
+			paths.put(stageID, ancestors);
+			indexes.put(stageID, index);
+			searched.put(stageID, index.size());
+		}
+
+		private void add(final StageID stageID, final StageIndex index, final SVNode node) {
+			final BitSet found = matches.get(stageID);
+			if (found == null || indexes.get(stageID) != index) {
+				return;
+			}
+			final int ordinal = isIndexed(node) ? index.ordinal(node.getNodeId()) : -1;
+			if (ordinal >= 0) {
+				final String value = getValue(field, node);
+				if (value != null && value.contains(text)) {
+					found.set(ordinal);
+					index.markAncestors(ordinal, paths.get(stageID));
+				}
+			}
+			for (final SVNode child : node.getChildren()) {
+				add(stageID, index, child);
+			}
+		}
+	}
+
+}
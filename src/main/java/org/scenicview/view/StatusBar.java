@@ -37,6 +37,7 @@ class StatusBar extends HBox {
 	private final Label sceneSizeText;
 	private final Label sceneMousePosText;
 	private final Label nodeCountText;
+	private final Label eventQueueText;
 	private final Label statusLabel = createValueLabel(null);
 	private final List<Node> standardNodes = new ArrayList<>();
 	private Timeline clearTimeout;
@@ -79,7 +80,16 @@ class StatusBar extends HBox {
 		tooltip = new Tooltip("Total number of nodes in the scene");
 		label = createLabel("Total Node count:", tooltip);
 		nodeCountText = createValueLabel(tooltip);
-		getChildren().addAll(label, nodeCountText);
+		spacer = new Region();
+		HBox.setHgrow(spacer, Priority.ALWAYS);
+		spacer.setPrefSize(18, 12);
+		getChildren().addAll(label, nodeCountText, spacer);
+
+		tooltip = new Tooltip("Events waiting to be shown and how late they are");
+		label = createLabel("Events:", tooltip);
+		eventQueueText = createValueLabel(tooltip);
+		updateEventQueue(0, 0);
+		getChildren().addAll(label, eventQueueText);
 		standardNodes.addAll(getChildrenUnmodifiable());
 	}
 
@@ -117,6 +127,10 @@ class StatusBar extends HBox {
 		updateNodeCount(count);
 	}
 
+	void updateEventQueue(final int depth, final long lag) {
+		eventQueueText.setText(depth + " queued, " + lag + " ms lag");
+	}
+
 	void updateMousePosition(final String position) {
 		sceneMousePosText.setText(position);
 	}
@@ -0,0 +1,165 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.scenicview.view;
+
+import javafx.scene.control.TreeItem;
+import org.fxconnector.node.SVNode;
+
+import java.util.Arrays;
+
+/**
+ * Tree items of one stage keyed on the node type and ID, so lookups neither
+ * box nor depend on the equals and hashCode of the nodes. Open addressing
+ * with linear probing over primitive keys.
+ * <p>
+ * It also remembers the nodes removed inside branches that have no items
+ * yet, see {@link ScenegraphTreeView}.
+ */
+final class TreeIndex {
+
+	private static final long FREE = -1;
+	private static final TreeItem<SVNode> REMOVED = new TreeItem<>();
+
+	private long[] keys;
+	private TreeItem<SVNode>[] items;
+	private int size;
+
+	TreeIndex() {
+		allocate(64);
+	}
+
+	TreeItem<SVNode> get(final SVNode node) {
+		final int slot = find(key(node));
+		return slot >= 0 && items[slot] != REMOVED ? items[slot] : null;
+	}
+
+	void put(final SVNode node, final TreeItem<SVNode> item) {
+		insert(key(node), item);
+	}
+
+	/**
+	 * Only removes the entry if it still belongs to the item
+	 */
+	void remove(final SVNode node, final TreeItem<SVNode> item) {
+		final int slot = find(key(node));
+		if (slot >= 0 && items[slot] == item) {
+			delete(slot);
+		}
+	}
+
+	void markRemoved(final SVNode node) {
+		if (get(node) == null) {
+			insert(key(node), REMOVED);
+		}
+	}
+
+	boolean isRemoved(final SVNode node) {
+		final int slot = find(key(node));
+		return slot >= 0 && items[slot] == REMOVED;
+	}
+
+	void unmarkRemoved(final SVNode node) {
+		final int slot = find(key(node));
+		if (slot >= 0 && items[slot] == REMOVED) {
+			delete(slot);
+		}
+	}
+
+	private static long key(final SVNode node) {
+		return ((long) node.getNodeType().ordinal() << 32) | (node.getNodeId() & 0xFFFFFFFFL);
+	}
+
+	private int slot(final long key) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (keys.length - 1);
+	}
+
+	private int find(final long key) {
+		for (int i = slot(key); ; i = (i + 1) & (keys.length - 1)) {
+			if (keys[i] == key) {
+				return i;
+			}
+			if (keys[i] == FREE) {
+				return -1;
+			}
+		}
+	}
+
+	private void insert(final long key, final TreeItem<SVNode> item) {
+		int i = slot(key);
+		while (keys[i] != FREE && keys[i] != key) {
+			i = (i + 1) & (keys.length - 1);
+		}
+		if (keys[i] == FREE) {
+			keys[i] = key;
+			if (++size > keys.length / 2) {
+				items[i] = item;
+				rehash(keys.length * 2);
+				return;
+			}
+		}
+		items[i] = item;
+	}
+
+	/**
+	 * Shifts back the entries of the run so no tombstones are needed
+	 */
+	private void delete(int slot) {
+		final int mask = keys.length - 1;
+		size--;
+		int next = slot;
+		while (true) {
+			next = (next + 1) & mask;
+			if (keys[next] == FREE) {
+				break;
+			}
+			final int home = slot(keys[next]);
+			// Move it back unless its home is cyclically within (slot, next]
+			if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+				keys[slot] = keys[next];
+				items[slot] = items[next];
+				slot = next;
+			}
+		}
+		keys[slot] = FREE;
+		items[slot] = null;
+	}
+
+	private void rehash(final int capacity) {
+		final long[] oldKeys = keys;
+		final TreeItem<SVNode>[] oldItems = items;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE) {
+				int slot = slot(oldKeys[i]);
+				while (keys[slot] != FREE) {
+					slot = (slot + 1) & (keys.length - 1);
+				}
+				keys[slot] = oldKeys[i];
+				items[slot] = oldItems[i];
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate(final int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, FREE);
+		items = (TreeItem<SVNode>[]) new TreeItem<?>[capacity];
+	}
+
+}
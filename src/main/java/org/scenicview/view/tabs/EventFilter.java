@@ -0,0 +1,115 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.scenicview.view.tabs;
+
+/**
+ * Text filter of the event log, parsed once. The words are combined left to
+ * right with AND (the default), OR and NOT, and each one must be found in
+ * the type, value and source of the event put together. Matching takes the
+ * lower case strings and allocates nothing.
+ */
+final class EventFilter {
+
+	@FunctionalInterface
+	private interface Term {
+		boolean test(String type, String value, String source);
+	}
+
+	private final Term root;
+
+	private EventFilter(final Term root) {
+		this.root = root;
+	}
+
+	/**
+	 * Null when the text does not filter anything
+	 */
+	static EventFilter compile(final String text) {
+		if (text.equals("")) {
+			return null;
+		}
+		final String[] words = text.toLowerCase().split(" ");
+		Term root = (type, value, source) -> true;
+		boolean and = true;
+		boolean not = false;
+		for (int i = 0; i < words.length; i++) {
+			final boolean last = i == words.length - 1;
+			if (words[i].equals("and") && !last) {
+				and = true;
+			} else if (words[i].equals("or") && !last) {
+				and = false;
+			} else if (words[i].equals("not") && !last) {
+				not = true;
+			} else {
+				final Term left = root;
+				final Term right = contains(words[i], not);
+				root = and ? (type, value, source) -> left.test(type, value, source) && right.test(type, value, source)
+						: (type, value, source) -> left.test(type, value, source) || right.test(type, value, source);
+				and = true;
+				not = false;
+			}
+		}
+		return new EventFilter(root);
+	}
+
+	boolean accept(final String type, final String value, final String source) {
+		return root.test(type, value, source);
+	}
+
+	private static Term contains(final String word, final boolean not) {
+		return (type, value, source) -> contains(type, value, source, word) != not;
+	}
+
+	/**
+	 * Same as (a + b + c).contains(word) without building the string
+	 */
+	static boolean contains(final String a, final String b, final String c, final String word) {
+		if (a.contains(word) || b.contains(word) || c.contains(word)) {
+			return true;
+		}
+		// Otherwise it can only be across the joins
+		final int n = word.length();
+		final int ab = a.length() + b.length();
+		final int last = ab + c.length() - n;
+		return spans(a, b, c, word, Math.max(0, a.length() - n + 1), Math.min(a.length() - 1, last))
+				|| spans(a, b, c, word, Math.max(0, ab - n + 1), Math.min(ab - 1, last));
+	}
+
+	private static boolean spans(final String a, final String b, final String c, final String word, final int from, final int to) {
+		next: for (int start = from; start <= to; start++) {
+			for (int i = 0; i < word.length(); i++) {
+				if (charAt(a, b, c, start + i) != word.charAt(i)) {
+					continue next;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static char charAt(final String a, final String b, final String c, final int index) {
+		if (index < a.length()) {
+			return a.charAt(index);
+		}
+		if (index < a.length() + b.length()) {
+			return b.charAt(index - a.length());
+		}
+		return c.charAt(index - a.length() - b.length());
+	}
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.scenicview.view.tabs;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Last events traced, in a fixed capacity ring. The strings repeat a lot
+ * (sources, event types) so they are interned, along with their lower case
+ * form for filtering, and each event only keeps their codes. The oldest
+ * event is dropped in constant time when full.
+ * <p>
+ * Events are addressed by their sequence number, which keeps growing while
+ * the slots are reused.
+ */
+final class EventLog {
+
+	private final int capacity;
+	private final int[] sources;
+	private final int[] types;
+	private final int[] values;
+	private final long[] moments;
+	private final StackTraceElement[][] stackTraces;
+	private final Strings strings = new Strings();
+	/**
+	 * Sequence numbers of the oldest event and of the next one
+	 */
+	private long first;
+	private long next;
+
+	EventLog(final int capacity) {
+		this.capacity = capacity;
+		this.sources = new int[capacity];
+		this.types = new int[capacity];
+		this.values = new int[capacity];
+		this.moments = new long[capacity];
+		this.stackTraces = new StackTraceElement[capacity][];
+	}
+
+	int size() {
+		return (int) (next - first);
+	}
+
+	boolean isFull() {
+		return size() == capacity;
+	}
+
+	long getFirst() {
+		return first;
+	}
+
+	long getNext() {
+		return next;
+	}
+
+	/**
+	 * Adds the event, dropping the oldest one when full, and returns its
+	 * sequence number
+	 */
+	long add(final String source, final String type, final String value, final long moment, final StackTraceElement[] stackTrace) {
+		if (isFull()) {
+			final int slot = slot(first++);
+			strings.release(sources[slot]);
+			strings.release(types[slot]);
+			strings.release(values[slot]);
+			stackTraces[slot] = null;
+		}
+		final long sequence = next++;
+		final int slot = slot(sequence);
+		sources[slot] = strings.intern(source);
+		types[slot] = strings.intern(type);
+		values[slot] = strings.intern(value);
+		moments[slot] = moment;
+		stackTraces[slot] = stackTrace;
+		return sequence;
+	}
+
+	void clear() {
+		Arrays.fill(stackTraces, null);
+		strings.clear();
+		first = next;
+	}
+
+	String getSource(final long sequence) {
+		return strings.get(sources[slot(sequence)]);
+	}
+
+	String getType(final long sequence) {
+		return strings.get(types[slot(sequence)]);
+	}
+
+	String getValue(final long sequence) {
+		return strings.get(values[slot(sequence)]);
+	}
+
+	String getLowerSource(final long sequence) {
+		return strings.getLower(sources[slot(sequence)]);
+	}
+
+	String getLowerType(final long sequence) {
+		return strings.getLower(types[slot(sequence)]);
+	}
+
+	String getLowerValue(final long sequence) {
+		return strings.getLower(values[slot(sequence)]);
+	}
+
+	long getMoment(final long sequence) {
+		return moments[slot(sequence)];
+	}
+
+	StackTraceElement[] getStackTrace(final long sequence) {
+		return stackTraces[slot(sequence)];
+	}
+
+	private int slot(final long sequence) {
+		return (int) (sequence % capacity);
+	}
+
+	/**
+	 * Reference counted string table, codes are reused once released
+	 */
+	private static final class Strings {
+
+		private final Map<String, Integer> codes = new HashMap<>();
+		private String[] values = new String[256];
+		private String[] lowers = new String[256];
+		private int[] references = new int[256];
+		private int[] free = new int[256];
+		private int freeCount;
+		private int used;
+
+		int intern(final String value) {
+			final String key = value != null ? value : "";
+			Integer code = codes.get(key);
+			if (code == null) {
+				code = freeCount > 0 ? free[--freeCount] : allocate();
+				values[code] = key;
+				lowers[code] = key.toLowerCase();
+				codes.put(key, code);
+			}
+			references[code]++;
+			return code;
+		}
+
+		String get(final int code) {
+			return values[code];
+		}
+
+		String getLower(final int code) {
+			return lowers[code];
+		}
+
+		void release(final int code) {
+			if (--references[code] == 0) {
+				codes.remove(values[code]);
+				values[code] = null;
+				lowers[code] = null;
+				if (freeCount == free.length) {
+					free = Arrays.copyOf(free, free.length * 2);
+				}
+				free[freeCount++] = code;
+			}
+		}
+
+		void clear() {
+			codes.clear();
+			Arrays.fill(values, 0, used, null);
+			Arrays.fill(lowers, 0, used, null);
+			Arrays.fill(references, 0, used, 0);
+			freeCount = 0;
+			used = 0;
+		}
+
+		private int allocate() {
+			if (used == values.length) {
+				values = Arrays.copyOf(values, used * 2);
+				lowers = Arrays.copyOf(lowers, used * 2);
+				references = Arrays.copyOf(references, used * 2);
+			}
+			return used++;
+		}
+	}
+
+}
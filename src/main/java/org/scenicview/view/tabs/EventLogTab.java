@@ -17,10 +17,10 @@
  */
 package org.scenicview.view.tabs;
 
+import javafx.application.Platform;
 import javafx.beans.binding.DoubleBinding;
 import javafx.beans.property.ReadOnlyBooleanProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
@@ -28,10 +28,15 @@ import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.input.DragEvent;
+import javafx.scene.input.MouseDragEvent;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
+import org.fxconnector.Configuration;
+import org.fxconnector.StageID;
 import org.fxconnector.event.EvLogEvent;
 import org.fxconnector.node.SVNode;
 import org.scenicview.view.ContextMenuContainer;
@@ -44,24 +49,37 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 public class EventLogTab extends Tab implements ContextMenuContainer {
 
     public static final String TAB_NAME = "Events";
 
     private static final int MAX_EVENTS = 5000;
+    private static final int MAX_RATE = 200;
+    private static final String[] MOUSE_MOVES = { MouseEvent.MOUSE_MOVED.getName(), MouseEvent.MOUSE_DRAGGED.getName(), MouseDragEvent.MOUSE_DRAG_OVER.getName(),
+            DragEvent.DRAG_OVER.getName() };
 
     private final ScenicViewGui scenicView;
 
     private final TableView<ScenicViewEvent> table = new TableView<>();
     private final ChoiceBox<String> showStack = new ChoiceBox<>();
     private final CheckMenuItem activateTrace = new CheckMenuItem("Enable Event Tracing");
-    private final ObservableList<ScenicViewEvent> events = FXCollections.observableArrayList();
-    private final ObservableList<ScenicViewEvent> filteredEvents = FXCollections.observableArrayList();
+    private final CheckMenuItem traceMouseMoves = new CheckMenuItem("Trace Mouse Moves");
+    private final CheckMenuItem limitRate = new CheckMenuItem("Limit to " + MAX_RATE + " Events per Second");
+    private final EventLog log = new EventLog(MAX_EVENTS);
+    private final FilteredEvents filteredEvents = new FilteredEvents();
     private final SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS");
     private FilterTextField idFilterField;
+    private FilterTextField propertiesField;
+    private String filterText;
+    private EventFilter filter;
+    private int filterGeneration;
     private final Label selectedNodeLabel = new Label("Enable event tracing in the Events menu");
     private SVNode selectedNode;
+    private StageID selectedStageID;
 
     private Menu menu;
 
@@ -161,21 +179,39 @@ public class EventLogTab extends Tab implements ContextMenuContainer {
         });
 
         activateTrace.selectedProperty().addListener((arg0, arg1, arg2) -> {
-            setSelectedNode(selectedNode);
+            setSelectedNode(selectedStageID, selectedNode);
             scenicView.update();
         });
+        traceMouseMoves.setSelected(true);
+        traceMouseMoves.selectedProperty().addListener((arg0, arg1, arg2) -> updateScope());
+        limitRate.setSelected(true);
+        limitRate.selectedProperty().addListener((arg0, arg1, arg2) -> updateScope());
         /**
          * This is an ugly fix for what I think is a bug of the gridPane
          */
         idFilterField.prefWidthProperty().bind(vbox.widthProperty().subtract(105));
         GridPane.setHgrow(idFilterField, Priority.ALWAYS);
+
+        propertiesField = new FilterTextField();
+        propertiesField.setMinHeight(Region.USE_PREF_SIZE);
+        propertiesField.setPromptText("Insert the properties to trace, separated by commas (all when empty)");
+        propertiesField.getTextField().setOnAction(arg0 -> updateScope());
+        propertiesField.setOnButtonClick(() -> {
+            propertiesField.setText("");
+            updateScope();
+        });
+        propertiesField.prefWidthProperty().bind(vbox.widthProperty().subtract(105));
+        GridPane.setHgrow(propertiesField, Priority.ALWAYS);
+        configureScope(scenicView.configuration);
         GridPane.setHgrow(showStack, Priority.ALWAYS);
         GridPane.setHgrow(selectedNodeLabel, Priority.NEVER);
 
         filtersGridPane.add(selectedNodeLabel, 1, 1, 3, 1);
         filtersGridPane.add(new Label("Text Filter:"), 1, 2);
         filtersGridPane.add(idFilterField, 2, 2);
-        filtersGridPane.setPrefHeight(60);
+        filtersGridPane.add(new Label("Properties:"), 1, 3);
+        filtersGridPane.add(propertiesField, 2, 3);
+        filtersGridPane.setPrefHeight(90);
         VBox.setMargin(table, new Insets(0, 5, 5, 5));
 
         vbox.getChildren().addAll(filtersGridPane, table);
@@ -184,8 +220,13 @@ public class EventLogTab extends Tab implements ContextMenuContainer {
         return vbox;
     }
 
-    public void setSelectedNode(final SVNode selectedNode) {
+    public void setSelectedNode(final StageID stageID, final SVNode selectedNode) {
+        final boolean changed = selectedNode != this.selectedNode;
         this.selectedNode = selectedNode;
+        this.selectedStageID = stageID;
+        if (changed) {
+            updateScope();
+        }
         if (!activateTrace.isSelected()) {
             selectedNodeLabel.setText("Enable event tracing in the Events menu");
         } else if (selectedNode != null) {
@@ -196,72 +237,25 @@ public class EventLogTab extends Tab implements ContextMenuContainer {
     }
 
     public void trace(final EvLogEvent event) {
-        trace(event.getSource(), event.getEventType(), event.getEventValue());
+        // Node IDs are only unique within an application
+        if (selectedNode == null || event.getStageID().equals(selectedStageID)) {
+            trace(event.getSource(), event.getEventType(), event.getEventValue());
+        }
     }
 
     public void trace(final SVNode source, final String eventType, final String eventValue) {
         if (isActive()) {
             if (checkValid(source)) {
-                final String sourceId = source.getExtendedId();
-                final ScenicViewEvent event = new ScenicViewEvent(sourceId, eventType, eventValue);
-                addToFiltered(event);
-                events.add(event);
-                if (events.size() > MAX_EVENTS) {
-                    if (events.size() == filteredEvents.size()) {
-                        final ScenicViewEvent oldEvent = events.remove(0);
-                        filteredEvents.remove(oldEvent);
-                    } else {
-                        // Try to find the first unfiltered event
-                        for (int i = 0; i < events.size(); i++) {
-                            if (!filteredEvents.contains(events.get(i))) {
-                                events.remove(i);
-                                break;
-                            }
-                        }
-                    }
-                }
+                // The oldest event goes away when the log is full
+                final ScenicViewEvent dropped = log.isFull() && filteredEvents.startsWith(log.getFirst()) ? filteredEvents.get(0) : null;
+                final long sequence = log.add(source.getExtendedId(), eventType, eventValue, System.currentTimeMillis(), Thread.currentThread().getStackTrace());
+                filteredEvents.update(dropped, validForFilter(sequence) ? sequence : -1);
             }
         }
     }
 
-    private void addToFiltered(final ScenicViewEvent event) {
-        if (validForFilter(event)) {
-            filteredEvents.add(event);
-        }
-    }
-
-    private boolean validForFilter(final ScenicViewEvent event) {
-        if (idFilterField.getText().equals(""))
-            return true;
-        final String lower = idFilterField.getText().toLowerCase();
-        final String[] unparsed = lower.split(" ");
-        final String eventData = event.eventType.toLowerCase() + event.eventValue.toLowerCase() + event.source.toLowerCase();
-        boolean valid = true;
-        boolean and = true;
-        boolean not = false;
-        for (int i = 0; i < unparsed.length; i++) {
-            if (unparsed[i].equals("and") && i < unparsed.length - 1) {
-                and = true;
-            } else if (unparsed[i].equals("or") && i < unparsed.length - 1) {
-                and = false;
-            } else if (unparsed[i].equals("not") && i < unparsed.length - 1) {
-                not = true;
-            } else {
-                final boolean actualValid = eventData.indexOf(unparsed[i]) != -1;
-                if (and && not)
-                    valid &= !actualValid;
-                else if (and)
-                    valid &= actualValid;
-                else if (!and && not)
-                    valid |= !actualValid;
-                else
-                    valid |= actualValid;
-                and = true;
-                not = false;
-            }
-        }
-
-        return valid;
+    private boolean validForFilter(final long sequence) {
+        return filter == null || filter.accept(log.getLowerType(sequence), log.getLowerValue(sequence), log.getLowerSource(sequence));
     }
 
     @Override
@@ -270,14 +264,38 @@ public class EventLogTab extends Tab implements ContextMenuContainer {
             menu = new Menu("Events");
             final MenuItem clear = new MenuItem("Clear events");
             clear.setOnAction(arg0 -> {
-                events.clear();
-                filteredEvents.clear();
+                filteredEvents.setAll(new long[0], 0);
+                log.clear();
             });
-            menu.getItems().addAll(activateTrace, clear);
+            menu.getItems().addAll(activateTrace, traceMouseMoves, limitRate, clear);
         }
         return menu;
     }
 
+    /**
+     * The agents only send the events of the selected branch, of the types
+     * traced and up to the rate. Properties are only listened to in the
+     * selected branch, and only the ones listed.
+     */
+    private void configureScope(final Configuration configuration) {
+        if (selectedNode != null && selectedStageID != null) {
+            configuration.setEventLogBranch(selectedStageID, selectedNode.getNodeId());
+        } else {
+            configuration.setEventLogBranch(null, 0);
+        }
+        configuration.setEventLogIgnoredTypes(traceMouseMoves.isSelected() ? new String[0] : MOUSE_MOVES);
+        configuration.setEventLogRate(limitRate.isSelected() ? MAX_RATE : 0);
+        final String properties = propertiesField.getText().trim();
+        configuration.setEventLogProperties(properties.isEmpty() ? new String[0] : properties.split("\\s*,\\s*"));
+    }
+
+    private void updateScope() {
+        configureScope(scenicView.configuration);
+        if (isActive()) {
+            scenicView.configurationUpdated();
+        }
+    }
+
     private boolean checkValid(final SVNode node) {
         if (node == null)
             return false;
@@ -292,18 +310,122 @@ public class EventLogTab extends Tab implements ContextMenuContainer {
         return activateTrace.selectedProperty();
     }
 
+    /**
+     * Filters the log again in parallel, off the FX thread, and shows the
+     * result at once. Events traced meanwhile are already filtered with the
+     * new text.
+     */
     private void applyFilter() {
-        final List<ScenicViewEvent> events = new ArrayList<>();
-        for (ScenicViewEvent event : EventLogTab.this.events) {
-            if (validForFilter(event)) {
-                events.add(event);
+        final String text = idFilterField.getText();
+        if (text.equals(filterText)) {
+            return;
+        }
+        filterText = text;
+        final EventFilter filter = EventFilter.compile(text);
+        this.filter = filter;
+        final int generation = ++filterGeneration;
+        // The strings are copied, the log keeps changing on the FX thread
+        final long first = log.getFirst();
+        final int size = log.size();
+        final String[] types = new String[size];
+        final String[] values = new String[size];
+        final String[] sources = new String[size];
+        for (int i = 0; i < size; i++) {
+            types[i] = log.getLowerType(first + i);
+            values[i] = log.getLowerValue(first + i);
+            sources[i] = log.getLowerSource(first + i);
+        }
+        CompletableFuture.supplyAsync(() -> {
+            final boolean[] accepted = new boolean[size];
+            IntStream.range(0, size).parallel().forEach(i -> accepted[i] = filter == null || filter.accept(types[i], values[i], sources[i]));
+            return accepted;
+        }).thenAccept(accepted -> Platform.runLater(() -> {
+            if (generation != filterGeneration) {
+                return;
+            }
+            final long[] sequences = new long[log.size()];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (accepted[i] && first + i >= log.getFirst()) {
+                    sequences[count++] = first + i;
+                }
+            }
+            for (long sequence = Math.max(first + size, log.getFirst()); sequence < log.getNext(); sequence++) {
+                if (validForFilter(sequence)) {
+                    sequences[count++] = sequence;
+                }
+            }
+            filteredEvents.setAll(sequences, count);
+        }));
+    }
+
+    /**
+     * Sequence numbers of the events accepted by the filter, in a ring like
+     * the log. The events shown are only created when the table asks for
+     * them.
+     */
+    private final class FilteredEvents extends ObservableListBase<ScenicViewEvent> {
+
+        private final long[] sequences = new long[MAX_EVENTS];
+        private int head;
+        private int count;
+
+        @Override
+        public ScenicViewEvent get(final int index) {
+            Objects.checkIndex(index, count);
+            return new ScenicViewEvent(sequences[(head + index) % MAX_EVENTS]);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        boolean startsWith(final long sequence) {
+            return count > 0 && sequences[head] == sequence;
+        }
+
+        /**
+         * Drops the first event if given and appends the sequence if not -1
+         */
+        void update(final ScenicViewEvent dropped, final long sequence) {
+            if (dropped == null && sequence < 0) {
+                return;
+            }
+            beginChange();
+            if (dropped != null) {
+                head = (head + 1) % MAX_EVENTS;
+                count--;
+                nextRemove(0, dropped);
+            }
+            if (sequence >= 0) {
+                sequences[(head + count) % MAX_EVENTS] = sequence;
+                count++;
+                nextAdd(count - 1, count);
             }
+            endChange();
+        }
+
+        void setAll(final long[] accepted, final int acceptedCount) {
+            final List<ScenicViewEvent> removed = new ArrayList<>(this);
+            System.arraycopy(accepted, 0, sequences, 0, acceptedCount);
+            head = 0;
+            count = acceptedCount;
+            beginChange();
+            if (!removed.isEmpty()) {
+                nextRemove(0, removed);
+            }
+            if (count > 0) {
+                nextAdd(0, count);
+            }
+            endChange();
         }
-        EventLogTab.this.filteredEvents.setAll(events);
     }
 
     public class ScenicViewEvent {
 
+        private final long sequence;
+        private final long time;
         public String source;
         public String eventType;
         public String eventValue;
@@ -311,12 +433,13 @@ public class EventLogTab extends Tab implements ContextMenuContainer {
         String relative;
         public StackTraceElement[] stackTrace;
 
-        public ScenicViewEvent(final String source, final String eventType, final String eventValue) {
-            this.source = source;
-            this.eventType = eventType;
-            this.eventValue = eventValue;
-            this.moment = format.format(new Date());
-            this.stackTrace = Thread.currentThread().getStackTrace();
+        ScenicViewEvent(final long sequence) {
+            this.sequence = sequence;
+            this.time = log.getMoment(sequence);
+            this.source = log.getSource(sequence);
+            this.eventType = log.getType(sequence);
+            this.eventValue = log.getValue(sequence);
+            this.stackTrace = log.getStackTrace(sequence);
         }
 
         public String getSource() {
@@ -344,6 +467,9 @@ public class EventLogTab extends Tab implements ContextMenuContainer {
         }
 
         public String getMoment() {
+            if (moment == null) {
+                moment = format.format(new Date(time));
+            }
             return moment;
         }
 
@@ -361,7 +487,7 @@ public class EventLogTab extends Tab implements ContextMenuContainer {
 
         @Override
         public String toString() {
-            return "Event [source=" + source + ", eventType=" + eventType + ((eventValue != null && !eventValue.equals("")) ? (", eventValue=" + eventValue) : "") + ", moment=" + moment + "]";
+            return "Event [source=" + source + ", eventType=" + eventType + ((eventValue != null && !eventValue.equals("")) ? (", eventValue=" + eventValue) : "") + ", moment=" + getMoment() + "]";
         }
 
         public StackTraceElement[] getStackTrace() {
@@ -372,6 +498,16 @@ public class EventLogTab extends Tab implements ContextMenuContainer {
             this.stackTrace = stackTrace;
         }
 
+        @Override
+        public int hashCode() {
+            return Long.hashCode(sequence);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof ScenicViewEvent && ((ScenicViewEvent) obj).sequence == sequence;
+        }
+
     }
 
 }
@@ -0,0 +1,128 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.event;
+
+import javafx.scene.input.KeyCode;
+import org.fxconnector.StageID;
+import org.fxconnector.details.Detail;
+import org.fxconnector.details.DetailPaneType;
+import org.fxconnector.event.FXConnectorEvent.SVEventType;
+import org.fxconnector.node.NodeType;
+import org.fxconnector.node.SVDummyNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventCodecTest {
+
+	private final StageID stageID = stageID();
+
+	@Test
+	void batchKeepsItsOrderAndStages() throws IOException {
+		final StageID other = new StageID(4, 5);
+		final List<FXConnectorEvent> read = roundTrip(new MousePosEvent(stageID, "10x20"), new NodeCountEvent(other, 300));
+
+		assertEquals(2, read.size());
+		assertEquals(stageID, read.get(0).getStageID());
+		assertEquals("Main", read.get(0).getStageID().getName());
+		assertEquals("10x20", ((MousePosEvent) read.get(0)).getPosition());
+		assertEquals(other, read.get(1).getStageID());
+		assertEquals(300, ((NodeCountEvent) read.get(1)).getNodeCount());
+	}
+
+	@Test
+	void eventsWithNodes() throws IOException {
+		final SVDummyNode node = new SVDummyNode("App", "Stage", 2, NodeType.STAGE);
+		final List<FXConnectorEvent> read = roundTrip(new EvLogEvent(stageID, node, "MOUSE_CLICKED", "x"), new NodeSelectedEvent(stageID, null),
+				new NodeAddRemoveEvent(SVEventType.NODE_REMOVED, stageID, node));
+
+		final EvLogEvent log = (EvLogEvent) read.get(0);
+		assertEquals(node, log.getSource());
+		assertEquals("MOUSE_CLICKED", log.getEventType());
+		assertEquals("x", log.getEventValue());
+		assertNull(((NodeSelectedEvent) read.get(1)).getNode());
+		assertEquals(SVEventType.NODE_REMOVED, read.get(2).getType());
+		assertEquals(node, ((NodeAddRemoveEvent) read.get(2)).getNode());
+	}
+
+	@Test
+	void sceneWindowAndShortcutEvents() throws IOException {
+		final List<FXConnectorEvent> read = roundTrip(new SceneDetailsEvent(stageID, 12, "800 x 600"), new WindowDetailsEvent(stageID, "Stage", "0 - 0  800 x 600", true, false),
+				new WindowDetailsEvent(stageID, null, "", false, true), new ShortcutEvent(stageID, KeyCode.F5));
+
+		final SceneDetailsEvent scene = (SceneDetailsEvent) read.get(0);
+		assertEquals(12, scene.getNodeCount());
+		assertEquals("800 x 600", scene.getSize());
+		final WindowDetailsEvent window = (WindowDetailsEvent) read.get(1);
+		assertEquals("Stage", window.getWindowType());
+		assertEquals("0 - 0  800 x 600", window.getBounds());
+		assertTrue(window.isFocused());
+		assertFalse(window.isStylesRefreshable());
+		assertNull(((WindowDetailsEvent) read.get(2)).getWindowType());
+		assertTrue(((WindowDetailsEvent) read.get(2)).isStylesRefreshable());
+		assertEquals(KeyCode.F5, ((ShortcutEvent) read.get(3)).getCode());
+	}
+
+	@Test
+	void details() throws IOException {
+		final Detail detail = new Detail(null, stageID, DetailPaneType.NODE, 9);
+		detail.setProperty("opacity");
+		detail.setLabel("opacity:");
+		detail.setValue("0.5");
+		detail.setIsDefault(true);
+		detail.setLabelType(Detail.LabelType.LAYOUT_BOUNDS);
+		final List<Detail> details = new ArrayList<>(List.of(detail));
+
+		final DetailsEvent read = (DetailsEvent) roundTrip(new DetailsEvent(SVEventType.DETAILS, stageID, DetailPaneType.NODE, "Node Details", details)).get(0);
+
+		assertEquals(SVEventType.DETAILS, read.getType());
+		assertEquals(DetailPaneType.NODE, read.getPaneType());
+		assertEquals("Node Details", read.getPaneName());
+		final Detail readDetail = read.getDetails().get(0);
+		assertEquals(9, readDetail.getDetailID());
+		assertEquals("opacity", readDetail.getProperty());
+		assertEquals("opacity:", readDetail.getLabel());
+		assertEquals("0.5", readDetail.getValue());
+		assertTrue(readDetail.isDefault());
+		assertEquals(Detail.LabelType.LAYOUT_BOUNDS, readDetail.getLabelType());
+		assertEquals(detail.getEditionType(), readDetail.getEditionType());
+	}
+
+	@Test
+	void eventsWithoutCompactFormAreSerialized() throws IOException {
+		final AnimationsCountEvent read = (AnimationsCountEvent) roundTrip(new AnimationsCountEvent(stageID, new ArrayList<>())).get(0);
+
+		assertEquals(stageID, read.getStageID());
+		assertTrue(read.getAnimations().isEmpty());
+	}
+
+	private static StageID stageID() {
+		final StageID id = new StageID(1, 2);
+		id.setName("Main");
+		return id;
+	}
+
+	private static List<FXConnectorEvent> roundTrip(final FXConnectorEvent... events) throws IOException {
+		return EventCodec.decode(EventCodec.encode(List.of(events)));
+	}
+
+}
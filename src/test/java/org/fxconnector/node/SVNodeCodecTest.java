@@ -0,0 +1,89 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.node;
+
+import org.fxconnector.event.WireInput;
+import org.fxconnector.event.WireOutput;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.fxconnector.node.SVNodeDiffTest.describe;
+import static org.fxconnector.node.SVNodeDiffTest.node;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SVNodeCodecTest {
+
+	@Test
+	void branchKeepsItsChildrenAndParents() throws IOException {
+		final SVRemoteNodeAdapter root = node(1, "root", node(2, null, node(4, "d")), node(3, "c"));
+		root.childrenIDs = new int[] { 3, 2 };
+		final SVRemoteNodeAdapter branch = (SVRemoteNodeAdapter) root.getChildren().get(0);
+
+		final SVRemoteNodeAdapter read = (SVRemoteNodeAdapter) roundTrip(branch);
+
+		assertEquals(describe(branch), describe(read));
+		assertSame(read, read.getChildren().get(0).getParent());
+		assertEquals(describe(root), describe(read.getParent()));
+		assertArrayEquals(new int[] { 3, 2 }, read.parent.childrenIDs);
+		assertNull(read.childrenIDs);
+	}
+
+	@Test
+	void flagsAndMissingChildren() throws IOException {
+		final SVRemoteNodeAdapter node = new SVRemoteNodeAdapter("Button", "javafx.scene.control.Button", "ok", 7, false, true, true);
+
+		final SVRemoteNodeAdapter read = (SVRemoteNodeAdapter) roundTrip(node);
+
+		assertEquals(describe(node), describe(read));
+		assertTrue(read.isFocused());
+		assertEquals("javafx.scene.control.Button", read.getNodeClassName());
+		assertNull(read.nodes);
+	}
+
+	@Test
+	void referencesAndDummyNodes() throws IOException {
+		final SVDummyNode stage = new SVDummyNode("App", "Stage", 3, NodeType.STAGE);
+		stage.imageInByte = new byte[] { 1, 2, 3 };
+		final SVRemoteNodeAdapter root = node(1, "root", node(2, "b"));
+		root.nodes.add(new SVNodeReference(5, NodeType.REMOTE_NODE));
+		stage.getChildren().add(root);
+		stage.getChildren().add(new SVNodeReference(3, NodeType.SUBWINDOWS_ROOT));
+
+		final SVDummyNode read = (SVDummyNode) roundTrip(stage);
+
+		assertEquals(describe(stage), describe(read));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, read.imageInByte);
+		final List<SVNode> children = read.getChildren().get(0).getChildren();
+		assertInstanceOf(SVNodeReference.class, children.get(1));
+		assertInstanceOf(SVNodeReference.class, read.getChildren().get(1));
+	}
+
+	@Test
+	void nullNode() throws IOException {
+		assertNull(roundTrip(null));
+	}
+
+	static SVNode roundTrip(final SVNode node) throws IOException {
+		final WireOutput out = new WireOutput();
+		SVNodeCodec.write(out, node);
+		return SVNodeCodec.read(new WireInput(out.toByteArray()));
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.fxconnector.node;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SVNodeDiffTest {
+
+	@Test
+	void unchangedTreeIsASingleReference() {
+		final SVNode previous = tree();
+		final SVNode diff = SVNodeDiff.diff(previous, tree());
+
+		assertInstanceOf(SVNodeReference.class, diff);
+		assertSame(previous, SVNodeDiff.apply(diff, previous));
+	}
+
+	@Test
+	void noPreviousTreeSendsTheWholeTree() {
+		final SVNode current = tree();
+
+		assertSame(current, SVNodeDiff.diff(null, current));
+		assertSame(current, SVNodeDiff.apply(current, null));
+	}
+
+	@Test
+	void changedAttributesAreShippedAndTheRestReused() {
+		final SVNode previous = tree();
+		final SVRemoteNodeAdapter current = tree();
+		current.nodes.set(1, node(3, "changed", node(4, "d")));
+
+		final SVNode updated = roundTrip(previous, current);
+
+		assertEquals(describe(current), describe(updated));
+		assertSame(previous.getChildren().get(0), updated.getChildren().get(0));
+		assertSame(previous.getChildren().get(1).getChildren().get(0), updated.getChildren().get(1).getChildren().get(0));
+	}
+
+	@Test
+	void insertedRemovedAndMovedNodes() {
+		final SVNode previous = tree();
+		final SVRemoteNodeAdapter current = tree();
+		// Move 4 under 2, remove 3 and insert 5 at the front
+		final SVRemoteNodeAdapter moved = (SVRemoteNodeAdapter) current.nodes.get(1).getChildren().get(0);
+		current.nodes.remove(1);
+		((SVRemoteNodeAdapter) current.nodes.get(0)).nodes = new ArrayList<>(List.of(moved));
+		current.nodes.add(0, node(5, "e"));
+
+		final SVNode updated = roundTrip(previous, current);
+
+		assertEquals(describe(current), describe(updated));
+		assertSame(previous.getChildren().get(1).getChildren().get(0), updated.getChildren().get(1).getChildren().get(0));
+	}
+
+	@Test
+	void dummyNodesAreKeyedOnTheirType() {
+		final SVDummyNode previous = stage(tree());
+		final SVDummyNode current = stage(tree());
+		((SVRemoteNodeAdapter) current.getChildren().get(0)).nodes.add(node(6, "f"));
+
+		final SVNode updated = roundTrip(previous, current);
+
+		assertEquals(describe(current), describe(updated));
+		assertSame(previous.getChildren().get(1), updated.getChildren().get(1));
+	}
+
+	@Test
+	void aDiffAgainstAnotherTreeCannotBeApplied() {
+		final SVNode previous = tree();
+		final SVRemoteNodeAdapter current = tree();
+		current.nodes.add(node(5, "e"));
+		final SVNode diff = SVNodeDiff.diff(previous, current);
+
+		final SVRemoteNodeAdapter other = node(1, "root", node(7, "g"));
+		assertThrows(IllegalStateException.class, () -> SVNodeDiff.apply(diff, other));
+	}
+
+	/**
+	 * 1 (2, 3 (4))
+	 */
+	private static SVRemoteNodeAdapter tree() {
+		return node(1, "root", node(2, "b"), node(3, "c", node(4, "d")));
+	}
+
+	private static SVDummyNode stage(final SVNode root) {
+		final SVDummyNode stage = new SVDummyNode("App", "Stage", 1, NodeType.STAGE);
+		stage.getChildren().add(root);
+		final SVDummyNode subWindows = new SVDummyNode("SubWindows", "Popup", 1, NodeType.SUBWINDOWS_ROOT);
+		stage.getChildren().add(subWindows);
+		return stage;
+	}
+
+	static SVRemoteNodeAdapter node(final int nodeID, final String id, final SVRemoteNodeAdapter... children) {
+		final SVRemoteNodeAdapter node = new SVRemoteNodeAdapter("Pane", "javafx.scene.layout.Pane", id, nodeID, true, false, false);
+		node.setExpanded(true);
+		node.nodes = new ArrayList<>();
+		for (final SVRemoteNodeAdapter child : children) {
+			child.parent = node;
+			node.nodes.add(child);
+		}
+		return node;
+	}
+
+	private static SVNode roundTrip(final SVNode previous, final SVNode current) {
+		return SVNodeDiff.apply(SVNodeDiff.diff(previous, current), previous);
+	}
+
+	static String describe(final SVNode node) {
+		final StringBuilder builder = new StringBuilder();
+		builder.append(node.getNodeType()).append(' ').append(node.getNodeId()).append(' ').append(node.getId()).append(' ').append(node.getNodeClass());
+		builder.append(node.isVisible() ? " visible" : "").append(node.isMouseTransparent() ? " transparent" : "").append(node.isExpanded() ? " expanded" : "");
+		builder.append(" [");
+		for (final SVNode child : node.getChildren()) {
+			builder.append(describe(child)).append(", ");
+		}
+		return builder.append(']').toString();
+	}
+
+}
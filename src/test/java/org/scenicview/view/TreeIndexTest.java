@@ -0,0 +1,168 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.scenicview.view;
+
+import javafx.scene.control.TreeItem;
+import org.fxconnector.node.NodeType;
+import org.fxconnector.node.SVDummyNode;
+import org.fxconnector.node.SVNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TreeIndexTest {
+
+	@Test
+	void nodesAreKeyedOnTypeAndID() {
+		final TreeIndex index = new TreeIndex();
+		final SVNode node = node(NodeType.REAL_NODE, 7);
+		final SVNode stage = node(NodeType.STAGE, 7);
+		final TreeItem<SVNode> item = new TreeItem<>(node);
+		index.put(node, item);
+
+		assertSame(item, index.get(node(NodeType.REAL_NODE, 7)));
+		assertNull(index.get(stage));
+		assertNull(index.get(node(NodeType.REAL_NODE, 8)));
+	}
+
+	@Test
+	void removeOnlyTheItemOfTheNode() {
+		final TreeIndex index = new TreeIndex();
+		final SVNode node = node(NodeType.REAL_NODE, 1);
+		final TreeItem<SVNode> item = new TreeItem<>(node);
+		index.put(node, item);
+
+		index.remove(node, new TreeItem<>(node));
+		assertSame(item, index.get(node));
+		index.remove(node, item);
+		assertNull(index.get(node));
+	}
+
+	@Test
+	void removedMarks() {
+		final TreeIndex index = new TreeIndex();
+		final SVNode node = node(NodeType.REAL_NODE, 1);
+		index.markRemoved(node);
+		assertTrue(index.isRemoved(node));
+		assertNull(index.get(node));
+		index.unmarkRemoved(node);
+		assertFalse(index.isRemoved(node));
+
+		// Not marked while it has an item
+		final TreeItem<SVNode> item = new TreeItem<>(node);
+		index.put(node, item);
+		index.markRemoved(node);
+		assertFalse(index.isRemoved(node));
+		assertSame(item, index.get(node));
+	}
+
+	/**
+	 * Deletions shift back the following entries of their run, every other
+	 * entry must still be found
+	 */
+	@Test
+	void sameContentAsAMapAfterRandomChanges() {
+		randomChanges(2000, 20000, 1000);
+	}
+
+	/**
+	 * Few nodes, so the table is never resized and runs often wrap around its
+	 * end
+	 */
+	@Test
+	void sameContentAsAMapInASmallTable() {
+		randomChanges(30, 20000, 1);
+	}
+
+	/**
+	 * A run that wraps around the end of the table, the entry after the
+	 * deleted one must move back across it
+	 */
+	@Test
+	void deleteInARunAcrossTheEnd() {
+		final TreeIndex index = new TreeIndex();
+		final List<SVNode> run = new ArrayList<>();
+		for (int id = 0; run.size() < 4; id++) {
+			if (home(id) == 62) {
+				run.add(node(NodeType.REAL_NODE, id));
+			}
+		}
+		for (final SVNode node : run) {
+			index.put(node, new TreeItem<>(node));
+		}
+		// Slots 62, 63, 0 and 1
+		index.remove(run.get(2), index.get(run.get(2)));
+
+		assertNull(index.get(run.get(2)));
+		for (final SVNode node : List.of(run.get(0), run.get(1), run.get(3))) {
+			assertSame(node, index.get(node).getValue());
+		}
+	}
+
+	/**
+	 * Slot of a real node in a new index, same hash as TreeIndex
+	 */
+	private static int home(final int nodeID) {
+		final long key = ((long) NodeType.REAL_NODE.ordinal() << 32) | nodeID;
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & 63;
+	}
+
+	private static void randomChanges(final int nodes, final int rounds, final int checks) {
+		final Random random = new Random(42);
+		final int[] pool = random.ints(nodes, 0, Integer.MAX_VALUE).toArray();
+		final TreeIndex index = new TreeIndex();
+		final Map<Integer, TreeItem<SVNode>> expected = new HashMap<>();
+		final List<Integer> ids = new ArrayList<>();
+		for (int round = 0; round < rounds; round++) {
+			final int id = pool[random.nextInt(nodes)];
+			final SVNode node = node(NodeType.REAL_NODE, id);
+			if (random.nextInt(3) == 0) {
+				final TreeItem<SVNode> item = expected.remove(id);
+				if (item != null) {
+					index.remove(node, item);
+				}
+			} else {
+				final TreeItem<SVNode> item = new TreeItem<>(node);
+				expected.put(id, item);
+				index.put(node, item);
+				if (!ids.contains(id)) {
+					ids.add(id);
+				}
+			}
+			if (round % checks == 0) {
+				for (final int known : ids) {
+					assertSame(expected.get(known), index.get(node(NodeType.REAL_NODE, known)));
+				}
+			}
+		}
+		for (final int id : pool) {
+			assertSame(expected.get(id), index.get(node(NodeType.REAL_NODE, id)));
+		}
+	}
+
+	private static SVNode node(final NodeType type, final int nodeID) {
+		return new SVDummyNode("Node" + nodeID, "Node", nodeID, type);
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.scenicview.view.tabs;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventFilterTest {
+
+	private static final String[] TEXTS = { "click", "CLICKED", "mouse click", "mouse and click", "mouse or key", "not mouse", "key or not mouse", "not key and not button",
+			"mouse or key and button", "and", "or", "not", "click and", "mouse not", "edbut", "clickedbutton@1", "", "x", "  mouse", "mouse_clicked button" };
+
+	private static final String[][] EVENTS = { { "MOUSE_CLICKED", "", "Button@1" }, { "KEY_PRESSED", "A", "TextField@2" }, { "MOUSE_MOVED", "10x20", "Pane" },
+			{ "", "", "" }, { "ACTION", "and", "Button@3" }, { "CLICK", "ED", "BUTTON" } };
+
+	@Test
+	void emptyTextFiltersNothing() {
+		assertNull(EventFilter.compile(""));
+	}
+
+	@Test
+	void sameResultsAsTheFilterItReplaced() {
+		for (final String text : TEXTS) {
+			if (text.equals("")) {
+				continue;
+			}
+			final EventFilter filter = EventFilter.compile(text);
+			for (final String[] event : EVENTS) {
+				final String type = event[0].toLowerCase();
+				final String value = event[1].toLowerCase();
+				final String source = event[2].toLowerCase();
+				assertEquals(validForFilter(text, event[0], event[1], event[2]), filter.accept(type, value, source));
+			}
+		}
+	}
+
+	@Test
+	void wordsAreFoundAcrossTheFields() {
+		assertTrue(EventFilter.contains("click", "ed", "button", "clickedbutton"));
+		assertTrue(EventFilter.contains("click", "ed", "button", "kedb"));
+		assertTrue(EventFilter.contains("ab", "", "cd", "bc"));
+		assertTrue(EventFilter.contains("a", "b", "c", "abc"));
+		assertTrue(EventFilter.contains("", "", "", ""));
+		assertFalse(EventFilter.contains("click", "ed", "button", "clickbutton"));
+		assertFalse(EventFilter.contains("a", "b", "c", "abcd"));
+		assertFalse(EventFilter.contains("", "", "", "a"));
+	}
+
+	/**
+	 * The filter of the event log before it was compiled
+	 */
+	private static boolean validForFilter(final String text, final String type, final String value, final String source) {
+		final String[] unparsed = text.toLowerCase().split(" ");
+		final String eventData = type.toLowerCase() + value.toLowerCase() + source.toLowerCase();
+		boolean valid = true;
+		boolean and = true;
+		boolean not = false;
+		for (int i = 0; i < unparsed.length; i++) {
+			if (unparsed[i].equals("and") && i < unparsed.length - 1) {
+				and = true;
+			} else if (unparsed[i].equals("or") && i < unparsed.length - 1) {
+				and = false;
+			} else if (unparsed[i].equals("not") && i < unparsed.length - 1) {
+				not = true;
+			} else {
+				final boolean actualValid = eventData.indexOf(unparsed[i]) != -1;
+				if (and && not)
+					valid &= !actualValid;
+				else if (and)
+					valid &= actualValid;
+				else if (!and && not)
+					valid |= !actualValid;
+				else
+					valid |= actualValid;
+				and = true;
+				not = false;
+			}
+		}
+		return valid;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Scenic View,
+ * Copyright (C) 2012 Jonathan Giles, Ander Ruiz, Amy Fowler
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.scenicview.view.tabs;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLogTest {
+
+	@Test
+	void oldestEventsAreDroppedWhenFull() {
+		final EventLog log = new EventLog(3);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(i, log.add("Source" + i, "TYPE", "value" + i, i * 10, null));
+		}
+
+		assertTrue(log.isFull());
+		assertEquals(3, log.size());
+		assertEquals(2, log.getFirst());
+		assertEquals(5, log.getNext());
+		for (long sequence = 2; sequence < 5; sequence++) {
+			assertEquals("Source" + sequence, log.getSource(sequence));
+			assertEquals("source" + sequence, log.getLowerSource(sequence));
+			assertEquals("value" + sequence, log.getValue(sequence));
+			assertEquals("TYPE", log.getType(sequence));
+			assertEquals("type", log.getLowerType(sequence));
+			assertEquals(sequence * 10, log.getMoment(sequence));
+		}
+	}
+
+	@Test
+	void stringsLiveWhileAnEventUsesThem() {
+		final EventLog log = new EventLog(2);
+		log.add("Shared", "A", "1", 0, null);
+		log.add("Shared", "B", "2", 0, null);
+		// Drops the first event, the second one still uses Shared
+		log.add("Other", "C", "3", 0, null);
+		assertEquals("Shared", log.getSource(1));
+		assertEquals("Other", log.getSource(2));
+
+		// Shared is released, its code is reused by new strings
+		for (int i = 0; i < 10; i++) {
+			final long sequence = log.add("New" + i, "D" + i, "v" + i, 0, null);
+			assertEquals("New" + i, log.getSource(sequence));
+			assertEquals("d" + i, log.getLowerType(sequence));
+			assertEquals("v" + i, log.getValue(sequence));
+			if (i > 0) {
+				assertEquals("New" + (i - 1), log.getSource(sequence - 1));
+			}
+		}
+	}
+
+	@Test
+	void manyDistinctStrings() {
+		final EventLog log = new EventLog(1000);
+		for (int i = 0; i < 3000; i++) {
+			log.add("Source" + i, "Type" + (i % 7), null, i, null);
+		}
+		for (long sequence = log.getFirst(); sequence < log.getNext(); sequence++) {
+			assertEquals("Source" + sequence, log.getSource(sequence));
+			assertEquals("type" + (sequence % 7), log.getLowerType(sequence));
+			assertEquals("", log.getValue(sequence));
+		}
+	}
+
+	@Test
+	void clearKeepsTheSequence() {
+		final EventLog log = new EventLog(4);
+		final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+		log.add("Source", "TYPE", "value", 1, stackTrace);
+		log.add("Source", "TYPE", "value", 2, null);
+		assertSame(stackTrace, log.getStackTrace(0));
+
+		log.clear();
+		assertEquals(0, log.size());
+		assertEquals(2, log.getFirst());
+		assertNull(log.getStackTrace(0));
+
+		final long sequence = log.add("Again", "TYPE", "value", 3, null);
+		assertEquals(2, sequence);
+		assertEquals("Again", log.getSource(sequence));
+		assertEquals("value", log.getValue(sequence));
+	}
+
+}